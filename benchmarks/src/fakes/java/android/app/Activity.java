@@ -0,0 +1,23 @@
+package android.app;
+
+import android.content.Context;
+
+/**
+ * Stand-in for the Cordova activity, only used to reach the application.
+ */
+public class Activity extends Context {
+    private final Application application;
+
+    public Activity(Application application) {
+        this.application = application;
+    }
+
+    public final Application getApplication() {
+        return application;
+    }
+
+    @Override
+    public Context getApplicationContext() {
+        return application;
+    }
+}
@@ -0,0 +1,12 @@
+package android.app;
+
+import android.content.Context;
+
+/**
+ * Stand-in for the Android application.
+ */
+public class Application extends Context {
+
+    public void onCreate() {
+    }
+}
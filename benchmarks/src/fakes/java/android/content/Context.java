@@ -0,0 +1,128 @@
+package android.content;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in for the Android context: in-memory shared preferences and a temporary files directory.
+ */
+public class Context {
+    public static final int MODE_PRIVATE = 0;
+
+    private final ConcurrentHashMap<String, SharedPreferences> preferences = new ConcurrentHashMap<String, SharedPreferences>();
+    private File filesDir;
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public synchronized File getFilesDir() {
+        if (filesDir == null) {
+            try {
+                filesDir = Files.createTempDirectory("moca-bench").toFile();
+                filesDir.deleteOnExit();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return filesDir;
+    }
+
+    public SharedPreferences getSharedPreferences(String name, int mode) {
+        SharedPreferences prefs = preferences.get(name);
+        if (prefs == null) {
+            prefs = new MemoryPreferences();
+            SharedPreferences current = preferences.putIfAbsent(name, prefs);
+            if (current != null) {
+                prefs = current;
+            }
+        }
+        return prefs;
+    }
+
+    private static final class MemoryPreferences implements SharedPreferences {
+        private final Map<String, Object> values = new ConcurrentHashMap<String, Object>();
+
+        private Object get(String key, Object defValue) {
+            Object value = values.get(key);
+            return value != null ? value : defValue;
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            return (String) get(key, defValue);
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            return (Integer) get(key, defValue);
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            return (Long) get(key, defValue);
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            return (Boolean) get(key, defValue);
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new Editor() {
+                private final Map<String, Object> edits = new HashMap<String, Object>();
+
+                @Override
+                public Editor putString(String key, String value) {
+                    edits.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor putInt(String key, int value) {
+                    edits.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor putLong(String key, long value) {
+                    edits.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor putBoolean(String key, boolean value) {
+                    edits.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public void apply() {
+                    commit();
+                }
+
+                @Override
+                public boolean commit() {
+                    for (Map.Entry<String, Object> entry : edits.entrySet()) {
+                        if (entry.getValue() == null) {
+                            values.remove(entry.getKey());
+                        } else {
+                            values.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    return true;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package android.content;
+
+/**
+ * Stand-in for the Android shared preferences.
+ */
+public interface SharedPreferences {
+
+    interface Editor {
+        Editor putString(String key, String value);
+
+        Editor putInt(String key, int value);
+
+        Editor putLong(String key, long value);
+
+        Editor putBoolean(String key, boolean value);
+
+        void apply();
+
+        boolean commit();
+    }
+
+    String getString(String key, String defValue);
+
+    int getInt(String key, int defValue);
+
+    long getLong(String key, long defValue);
+
+    boolean getBoolean(String key, boolean defValue);
+
+    boolean contains(String key);
+
+    Editor edit();
+}
@@ -0,0 +1,20 @@
+package android.os;
+
+/**
+ * Stand-in for the Android handler, posting to the looper thread.
+ */
+public class Handler {
+    private final Looper looper;
+
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+
+    public final boolean post(Runnable r) {
+        return looper.queue.offer(r);
+    }
+
+    public final Looper getLooper() {
+        return looper;
+    }
+}
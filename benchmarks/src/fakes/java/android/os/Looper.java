@@ -0,0 +1,46 @@
+package android.os;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Stand-in for the Android main looper: a daemon thread running the posted messages in order.
+ * Only the main looper exists; other threads have no looper.
+ */
+public final class Looper {
+    private static final Looper MAIN = new Looper();
+
+    final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
+    private final Thread thread;
+
+    private Looper() {
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        queue.take().run();
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }, "main");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    public static Looper myLooper() {
+        return Thread.currentThread() == MAIN.thread ? MAIN : null;
+    }
+
+    public Thread getThread() {
+        return thread;
+    }
+}
@@ -0,0 +1,21 @@
+package android.os;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for the Android monotonic clock.
+ */
+public final class SystemClock {
+    private static final long START_NANOS = System.nanoTime();
+
+    private SystemClock() {
+    }
+
+    public static long elapsedRealtime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - START_NANOS);
+    }
+
+    public static long uptimeMillis() {
+        return elapsedRealtime();
+    }
+}
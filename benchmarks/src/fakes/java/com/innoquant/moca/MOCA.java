@@ -0,0 +1,83 @@
+package com.innoquant.moca;
+
+import android.app.Application;
+
+import com.innoquant.moca.core.MOCAContext;
+import com.innoquant.moca.proximity.ProximityData;
+
+/**
+ * Stand-in for the SDK entry point. initializeSDK creates an in-memory instance and proximity
+ * service; nothing talks to the network.
+ */
+public final class MOCA {
+
+    /**
+     * Internal SDK context handed to the default action handler.
+     */
+    public static class LibContext implements MOCAContext {
+    }
+
+    private static volatile boolean initialized;
+    private static volatile MOCAConfig config;
+    private static volatile MOCAInstance instance;
+    private static volatile MOCAProximityService proximityService;
+    private static final LibContext libContext = new LibContext();
+    private static volatile boolean proximityEnabled = true;
+
+    private MOCA() {
+    }
+
+    public static synchronized void initializeSDK(Application application, MOCAConfig mocaConfig) {
+        config = mocaConfig;
+        instance = new MOCAInstance("bench-instance");
+        proximityService = new MOCAProximityService();
+        initialized = true;
+    }
+
+    public static boolean initialized() {
+        return initialized;
+    }
+
+    public static String getVersion() {
+        return "2.10.2-bench";
+    }
+
+    public static String getAppKey() {
+        return config != null ? config.getAppKey() : null;
+    }
+
+    public static String getAppSecret() {
+        return config != null ? config.getAppSecret() : null;
+    }
+
+    public static MOCALogLevel getLogLevel() {
+        return MOCALogLevel.Warning;
+    }
+
+    public static MOCAInstance getInstance() {
+        return instance;
+    }
+
+    public static MOCAProximityService getProximityService() {
+        return proximityService;
+    }
+
+    public static MOCAContext getLibContext() {
+        return libContext;
+    }
+
+    public static boolean proximityEnabled() {
+        return proximityEnabled;
+    }
+
+    public static void setProximityEnabled(boolean enabled) {
+        proximityEnabled = enabled;
+    }
+
+    public static void setGeoTrackingEnabled(boolean enabled) {
+    }
+
+    public static void performFetchWithCallback(MOCACallback<ProximityData> callback) {
+        callback.success(new ProximityData());
+    }
+}
@@ -0,0 +1,8 @@
+package com.innoquant.moca;
+
+/**
+ * Stand-in for an experience action raised by the SDK.
+ */
+public interface MOCAAction {
+    String getActionId();
+}
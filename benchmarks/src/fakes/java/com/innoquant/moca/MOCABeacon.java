@@ -0,0 +1,51 @@
+package com.innoquant.moca;
+
+import java.util.UUID;
+
+/**
+ * Stand-in for a beacon of the SDK registry.
+ */
+public class MOCABeacon {
+    private final String id;
+    private final String name;
+    private final UUID proximityUUID;
+    private final int major;
+    private final int minor;
+    private volatile MOCAProximity proximity = MOCAProximity.Unknown;
+
+    public MOCABeacon(String id, String name, UUID proximityUUID, int major, int minor) {
+        this.id = id;
+        this.name = name;
+        this.proximityUUID = proximityUUID;
+        this.major = major;
+        this.minor = minor;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public UUID getProximityUUID() {
+        return proximityUUID;
+    }
+
+    public int getMajor() {
+        return major;
+    }
+
+    public int getMinor() {
+        return minor;
+    }
+
+    public MOCAProximity getProximity() {
+        return proximity;
+    }
+
+    public void setProximity(MOCAProximity proximity) {
+        this.proximity = proximity;
+    }
+}
@@ -0,0 +1,7 @@
+package com.innoquant.moca;
+
+public interface MOCACallback<T> {
+    void success(T result);
+
+    void failure(MOCAException e);
+}
@@ -0,0 +1,33 @@
+package com.innoquant.moca;
+
+public class MOCAConfig {
+    private final String appKey;
+    private final String appSecret;
+    private String gcmSender;
+    private boolean automaticPushSetupEnabled;
+
+    private MOCAConfig(String appKey, String appSecret) {
+        this.appKey = appKey;
+        this.appSecret = appSecret;
+    }
+
+    public static MOCAConfig getDefault(String appKey, String appSecret) {
+        return new MOCAConfig(appKey, appSecret);
+    }
+
+    public String getAppKey() {
+        return appKey;
+    }
+
+    public String getAppSecret() {
+        return appSecret;
+    }
+
+    public void setGcmSender(String gcmSender) {
+        this.gcmSender = gcmSender;
+    }
+
+    public void setAutomaticPushSetupEnabled(boolean enabled) {
+        this.automaticPushSetupEnabled = enabled;
+    }
+}
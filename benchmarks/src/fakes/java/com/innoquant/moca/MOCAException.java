@@ -0,0 +1,7 @@
+package com.innoquant.moca;
+
+public class MOCAException extends Exception {
+    public MOCAException(String message) {
+        super(message);
+    }
+}
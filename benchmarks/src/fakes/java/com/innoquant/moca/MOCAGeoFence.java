@@ -0,0 +1,16 @@
+package com.innoquant.moca;
+
+/**
+ * Stand-in for a circular place geofence.
+ */
+public class MOCAGeoFence {
+    private final MOCALocation center;
+
+    public MOCAGeoFence(MOCALocation center) {
+        this.center = center;
+    }
+
+    public MOCALocation getCenter() {
+        return center;
+    }
+}
@@ -0,0 +1,80 @@
+package com.innoquant.moca;
+
+import com.innoquant.moca.core.User;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in for the SDK instance, kept in memory. Tag values take the SDK syntax: "n", "+n",
+ * "-n" or "=n".
+ */
+public class MOCAInstance {
+    private final String id;
+    private final Map<String, Object> properties = new ConcurrentHashMap<String, Object>();
+    private final Map<String, Long> tags = new ConcurrentHashMap<String, Long>();
+    private volatile User user;
+
+    public MOCAInstance(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getSessionNumber() {
+        return 1;
+    }
+
+    public MOCAUser getUser() {
+        return user;
+    }
+
+    public MOCAUser login(String userId) {
+        user = new User(userId);
+        return user;
+    }
+
+    public void setProperty(String key, Object value) {
+        properties.put(key, value);
+    }
+
+    public Object getProperty(String key) {
+        return properties.get(key);
+    }
+
+    public synchronized void addTag(String name, String value) {
+        final Long current = tags.get(name);
+        final long base = current != null ? current : 0;
+        if (value == null || value.length() == 0) {
+            tags.put(name, base + 1);
+        } else if (value.charAt(0) == '+') {
+            tags.put(name, base + Long.parseLong(value.substring(1)));
+        } else if (value.charAt(0) == '-') {
+            tags.put(name, base - Long.parseLong(value.substring(1)));
+        } else if (value.charAt(0) == '=') {
+            tags.put(name, Long.parseLong(value.substring(1)));
+        } else {
+            tags.put(name, Long.parseLong(value));
+        }
+    }
+
+    public void removeTag(String name) {
+        tags.remove(name);
+    }
+
+    public boolean containsTag(String name) {
+        return tags.containsKey(name);
+    }
+
+    public Set<MOCATag> getTags() {
+        Set<MOCATag> result = new HashSet<MOCATag>();
+        for (Map.Entry<String, Long> entry : tags.entrySet()) {
+            result.add(new MOCATag(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+}
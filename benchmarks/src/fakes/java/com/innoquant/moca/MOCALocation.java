@@ -0,0 +1,28 @@
+package com.innoquant.moca;
+
+/**
+ * Stand-in for the center of a place geofence.
+ */
+public class MOCALocation {
+    private final double latitude;
+    private final double longitude;
+    private final float accuracy;
+
+    public MOCALocation(double latitude, double longitude, float accuracy) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracy = accuracy;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public float getAccuracy() {
+        return accuracy;
+    }
+}
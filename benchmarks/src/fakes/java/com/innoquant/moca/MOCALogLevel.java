@@ -0,0 +1,10 @@
+package com.innoquant.moca;
+
+public enum MOCALogLevel {
+    Verbose,
+    Debug,
+    Info,
+    Warning,
+    Error,
+    Off
+}
@@ -0,0 +1,37 @@
+package com.innoquant.moca;
+
+/**
+ * Stand-in for a place of the SDK registry.
+ */
+public class MOCAPlace {
+    private final String id;
+    private final String name;
+    private final MOCAGeoFence geoFence;
+    private volatile MOCARegionState state = MOCARegionState.Unknown;
+
+    public MOCAPlace(String id, String name, MOCAGeoFence geoFence) {
+        this.id = id;
+        this.name = name;
+        this.geoFence = geoFence;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public MOCAGeoFence getGeoFence() {
+        return geoFence;
+    }
+
+    public MOCARegionState getState() {
+        return state;
+    }
+
+    public void setState(MOCARegionState state) {
+        this.state = state;
+    }
+}
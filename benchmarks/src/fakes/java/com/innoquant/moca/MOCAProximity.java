@@ -0,0 +1,8 @@
+package com.innoquant.moca;
+
+public enum MOCAProximity {
+    Unknown,
+    Immediate,
+    Near,
+    Far
+}
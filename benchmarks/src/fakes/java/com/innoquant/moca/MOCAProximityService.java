@@ -0,0 +1,88 @@
+package com.innoquant.moca;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stand-in for the SDK proximity service. The benchmarks set its places, and raise events
+ * through the registered listeners.
+ */
+public class MOCAProximityService {
+
+    public interface EventListener {
+        void didEnterRange(MOCABeacon beacon, MOCAProximity proximity);
+
+        void didExitRange(MOCABeacon beacon);
+
+        void didBeaconProximityChange(MOCABeacon beacon, MOCAProximity prevProximity, MOCAProximity curProximity);
+
+        void didEnterPlace(MOCAPlace place);
+
+        void didExitPlace(MOCAPlace place);
+
+        void didEnterZone(MOCAZone zone);
+
+        void didExitZone(MOCAZone zone);
+
+        boolean handleCustomTrigger(String customAttribute);
+
+        void didLoadedBeaconsData(List<MOCABeacon> beacons);
+    }
+
+    public interface ActionListener {
+        boolean displayNotificationAlert(MOCAAction action, String alertMessage);
+
+        boolean openUrl(MOCAAction action, String url);
+
+        boolean showHtmlWithString(MOCAAction action, String html);
+
+        boolean playVideoFromUrl(MOCAAction action, String url);
+
+        boolean displayImageFromUrl(MOCAAction action, String url);
+
+        boolean displayPassFromUrl(MOCAAction action, String url);
+
+        boolean addTag(MOCAAction action, String tagName, String tagValue);
+
+        boolean playNotificationSound(MOCAAction action, String soundFilename);
+
+        boolean performCustomAction(MOCAAction action, String customAttribute);
+    }
+
+    private volatile EventListener eventListener;
+    private volatile ActionListener actionListener;
+    private volatile List<MOCAPlace> places = Collections.emptyList();
+    private volatile List<MOCABeacon> beacons = Collections.emptyList();
+
+    public void setEventListener(EventListener listener) {
+        this.eventListener = listener;
+    }
+
+    public void setActionListener(ActionListener listener) {
+        this.actionListener = listener;
+    }
+
+    public EventListener getEventListener() {
+        return eventListener;
+    }
+
+    public ActionListener getActionListener() {
+        return actionListener;
+    }
+
+    public List<MOCAPlace> getPlaces() {
+        return places;
+    }
+
+    public void setPlaces(List<MOCAPlace> places) {
+        this.places = places;
+    }
+
+    public List<MOCABeacon> getBeacons() {
+        return beacons;
+    }
+
+    public void setBeacons(List<MOCABeacon> beacons) {
+        this.beacons = beacons;
+    }
+}
@@ -0,0 +1,7 @@
+package com.innoquant.moca;
+
+public enum MOCARegionState {
+    Unknown,
+    Inside,
+    Outside
+}
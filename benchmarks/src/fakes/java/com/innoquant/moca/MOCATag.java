@@ -0,0 +1,19 @@
+package com.innoquant.moca;
+
+public class MOCATag {
+    private final String name;
+    private final long value;
+
+    public MOCATag(String name, long value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,13 @@
+package com.innoquant.moca;
+
+public interface MOCAUser {
+    String getId();
+
+    void logout();
+
+    void save(MOCACallback<MOCAUser> callback);
+
+    void setProperty(String key, Object value);
+
+    Object getProperty(String key);
+}
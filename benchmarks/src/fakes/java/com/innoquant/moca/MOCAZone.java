@@ -0,0 +1,22 @@
+package com.innoquant.moca;
+
+/**
+ * Stand-in for a zone of the SDK registry.
+ */
+public class MOCAZone {
+    private final String id;
+    private final String name;
+
+    public MOCAZone(String id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,4 @@
+package com.innoquant.moca.core;
+
+public interface MOCAContext {
+}
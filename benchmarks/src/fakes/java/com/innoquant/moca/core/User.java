@@ -0,0 +1,52 @@
+package com.innoquant.moca.core;
+
+import com.innoquant.moca.MOCACallback;
+import com.innoquant.moca.MOCAUser;
+
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in for the SDK user, kept in memory. Saves succeed right away.
+ */
+public class User implements MOCAUser {
+    private final String id;
+    private final Map<String, Object> properties = new ConcurrentHashMap<String, Object>();
+
+    public User(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void logout() {
+    }
+
+    @Override
+    public void save(MOCACallback<MOCAUser> callback) {
+        if (callback != null) {
+            callback.success(this);
+        }
+    }
+
+    @Override
+    public void setProperty(String key, Object value) {
+        properties.put(key, value);
+    }
+
+    @Override
+    public Object getProperty(String key) {
+        return properties.get(key);
+    }
+
+    public String serializeAsJson() {
+        JSONObject json = new JSONObject(properties);
+        return json.toString();
+    }
+}
@@ -0,0 +1,4 @@
+package com.innoquant.moca.eventbus;
+
+public class BusEvent {
+}
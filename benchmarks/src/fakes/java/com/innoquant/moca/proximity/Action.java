@@ -0,0 +1,24 @@
+package com.innoquant.moca.proximity;
+
+import com.innoquant.moca.MOCAAction;
+import com.innoquant.moca.eventbus.BusEvent;
+import com.innoquant.moca.proximity.campaign.Experience;
+
+/**
+ * Stand-in for the SDK action contract.
+ */
+public interface Action extends MOCAAction {
+    Experience getExperience();
+
+    boolean fire(Situation situation, ActionHandler actionHandler, BusEvent busEvent);
+
+    void assignExperience(Experience experience);
+
+    String getCaption();
+
+    Object getContent();
+
+    String getBackgroundAlert();
+
+    String getCampaignId();
+}
@@ -0,0 +1,7 @@
+package com.innoquant.moca.proximity;
+
+public enum Situation {
+    Proximity,
+    Foreground,
+    Background
+}
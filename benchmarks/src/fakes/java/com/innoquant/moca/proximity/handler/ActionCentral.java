@@ -0,0 +1,4 @@
+package com.innoquant.moca.proximity.handler;
+
+public class ActionCentral {
+}
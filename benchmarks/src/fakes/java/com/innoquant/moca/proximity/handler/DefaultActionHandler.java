@@ -0,0 +1,9 @@
+package com.innoquant.moca.proximity.handler;
+
+import com.innoquant.moca.MOCA;
+import com.innoquant.moca.proximity.ActionHandler;
+
+public class DefaultActionHandler implements ActionHandler {
+    public DefaultActionHandler(MOCA.LibContext libContext) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.innoquant.moca.utils.logger;
+
+import android.content.Context;
+
+import com.innoquant.moca.MOCALogLevel;
+
+/**
+ * Stand-in for the SDK logger, writing to stderr. Silent by default so that logging does not
+ * show up in the measurements; benchmarks can lower the level when debugging.
+ */
+public final class MLog {
+    private static volatile MOCALogLevel level = MOCALogLevel.Off;
+
+    private MLog() {
+    }
+
+    public static void setLogLevel(MOCALogLevel logLevel, Context context) {
+        level = logLevel;
+    }
+
+    public static void d(String msg) {
+        log(MOCALogLevel.Debug, msg, null);
+    }
+
+    public static void i(String msg) {
+        log(MOCALogLevel.Info, msg, null);
+    }
+
+    public static void w(String msg) {
+        log(MOCALogLevel.Warning, msg, null);
+    }
+
+    public static void e(String msg) {
+        log(MOCALogLevel.Error, msg, null);
+    }
+
+    public static void e(String msg, Throwable e) {
+        log(MOCALogLevel.Error, msg, e);
+    }
+
+    public static void wtf(String msg) {
+        log(MOCALogLevel.Error, msg, null);
+    }
+
+    private static void log(MOCALogLevel messageLevel, String msg, Throwable e) {
+        if (messageLevel.ordinal() < level.ordinal() || level == MOCALogLevel.Off) {
+            return;
+        }
+        System.err.println("MOCA " + messageLevel + ": " + msg);
+        if (e != null) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.apache.cordova;
+
+import android.app.Activity;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Stand-in for the Cordova activity interface.
+ */
+public interface CordovaInterface {
+    Activity getActivity();
+
+    ExecutorService getThreadPool();
+}
@@ -0,0 +1,8 @@
+package org.apache.cordova;
+
+/**
+ * Stand-in for the Cordova web view, receiving the plugin results sent to JavaScript.
+ */
+public interface CordovaWebView {
+    void sendPluginResult(PluginResult cr, String callbackId);
+}
@@ -0,0 +1,139 @@
+package com.innoquant.moca.phonegap;
+
+import android.app.Activity;
+
+import com.innoquant.moca.MOCABeacon;
+import com.innoquant.moca.MOCAGeoFence;
+import com.innoquant.moca.MOCALocation;
+import com.innoquant.moca.MOCAPlace;
+import com.innoquant.moca.MOCAProximity;
+import com.innoquant.moca.MOCAZone;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaInterface;
+import org.apache.cordova.CordovaPreferences;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared fixtures of the benchmarks: registry objects, and a plugin wired to the SDK
+ * stand-ins as Cordova would wire it.
+ */
+final class BenchmarkFixtures {
+
+    private static final UUID PROXIMITY_UUID = UUID.fromString("f7826da6-4fa2-4e98-8024-bc5b71e0893e");
+
+    private BenchmarkFixtures() {
+    }
+
+    static List<MOCABeacon> beacons(int count) {
+        List<MOCABeacon> beacons = new ArrayList<MOCABeacon>(count);
+        for (int i = 0; i < count; i++) {
+            MOCABeacon beacon = new MOCABeacon("beacon-" + i, "Beacon \"" + i + "\"", PROXIMITY_UUID, 1000 + i / 100, i % 100);
+            beacon.setProximity(MOCAProximity.values()[i % MOCAProximity.values().length]);
+            beacons.add(beacon);
+        }
+        return beacons;
+    }
+
+    static List<MOCAPlace> places(int count) {
+        List<MOCAPlace> places = new ArrayList<MOCAPlace>(count);
+        for (int i = 0; i < count; i++) {
+            MOCALocation center = new MOCALocation(41.38 + (i % 100) * 0.001, 2.17 + (i / 100) * 0.001, 50);
+            places.add(new MOCAPlace("place-" + i, "Place " + i, new MOCAGeoFence(center)));
+        }
+        return places;
+    }
+
+    static List<MOCAZone> zones(int count) {
+        List<MOCAZone> zones = new ArrayList<MOCAZone>(count);
+        for (int i = 0; i < count; i++) {
+            zones.add(new MOCAZone("zone-" + i, "Zone " + i));
+        }
+        return zones;
+    }
+
+    /**
+     * Web view counting the results it receives, as a sink the JIT cannot optimize away.
+     */
+    static final class CountingWebView implements CordovaWebView {
+        final AtomicLong results = new AtomicLong();
+
+        @Override
+        public void sendPluginResult(PluginResult cr, String callbackId) {
+            results.incrementAndGet();
+        }
+    }
+
+    /**
+     * Callback context that can be waited on until its final result arrives.
+     */
+    static final class AwaitableCallbackContext extends CallbackContext {
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        AwaitableCallbackContext(String callbackId, CordovaWebView webView) {
+            super(callbackId, webView);
+        }
+
+        @Override
+        public void sendPluginResult(PluginResult pluginResult) {
+            super.sendPluginResult(pluginResult);
+            if (!pluginResult.getKeepCallback()) {
+                done.countDown();
+            }
+        }
+
+        void await() throws InterruptedException {
+            if (!done.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("No result for " + getCallbackId());
+            }
+        }
+    }
+
+    /**
+     * A started application and plugin, initialized from the given preferences.
+     */
+    static final class Runtime {
+        final MOCApp app;
+        final MOCAPlugin plugin;
+        final CountingWebView webView;
+        private final ExecutorService threadPool;
+
+        Runtime(CordovaPreferences preferences) {
+            preferences.set(MOCAConstants.APP_KEY, "bench-key");
+            preferences.set(MOCAConstants.APP_SECRET, "bench-secret");
+            app = new MOCApp();
+            app.onCreate();
+            threadPool = Executors.newCachedThreadPool();
+            final Activity activity = new Activity(app);
+            final CordovaInterface cordova = new CordovaInterface() {
+                @Override
+                public Activity getActivity() {
+                    return activity;
+                }
+
+                @Override
+                public ExecutorService getThreadPool() {
+                    return threadPool;
+                }
+            };
+            webView = new CountingWebView();
+            plugin = new MOCAPlugin();
+            plugin.privateInitialize("MOCAPlugin", cordova, webView, preferences);
+        }
+
+        void shutdown() {
+            plugin.onDestroy();
+            threadPool.shutdownNow();
+        }
+    }
+}
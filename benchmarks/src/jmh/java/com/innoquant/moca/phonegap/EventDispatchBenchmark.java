@@ -0,0 +1,85 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCABeacon;
+import com.innoquant.moca.MOCAPlace;
+import com.innoquant.moca.MOCAProximity;
+
+import org.apache.cordova.CordovaPreferences;
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.List;
+
+/**
+ * SDK events raised from several threads at once, as the beacon scanner, the geofencing
+ * callbacks and the timer wheel do, down to the result handed to the web view.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class EventDispatchBenchmark {
+
+    @Param({"json", "msgpack"})
+    public String transport;
+
+    /**
+     * Whether the startup queue is still armed, i.e. events go through the event queue.
+     */
+    @Param({"false", "true"})
+    public boolean queueing;
+
+    private BenchmarkFixtures.Runtime runtime;
+    private List<MOCABeacon> beacons;
+    private List<MOCAPlace> places;
+
+    @Setup
+    public void setUp() throws Exception {
+        CordovaPreferences preferences = new CordovaPreferences();
+        preferences.set(MOCAConstants.EVENT_TRANSPORT, transport);
+        runtime = new BenchmarkFixtures.Runtime(preferences);
+        for (String event : new String[]{MOCAAPI.DID_ENTER_RANGE, MOCAAPI.BEACON_PROXIMITY_CHANGE, MOCAAPI.DID_ENTER_PLACE}) {
+            runtime.plugin.execute(event, new JSONArray(),
+                    new BenchmarkFixtures.AwaitableCallbackContext(event, runtime.webView));
+        }
+        if (queueing) {
+            runtime.app.rearmEventQueue();
+        } else {
+            runtime.app.markJavaScriptReady();
+        }
+        beacons = BenchmarkFixtures.beacons(64);
+        places = BenchmarkFixtures.places(64);
+    }
+
+    @TearDown
+    public void tearDown() {
+        runtime.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public long enterBeacon(Cursor cursor) {
+        runtime.app.didEnterRange(beacons.get(cursor.next++ & 63), MOCAProximity.Near);
+        return runtime.webView.results.get();
+    }
+
+    @Benchmark
+    public long beaconProximityChange(Cursor cursor) {
+        runtime.app.didBeaconProximityChange(beacons.get(cursor.next++ & 63), MOCAProximity.Far, MOCAProximity.Near);
+        return runtime.webView.results.get();
+    }
+
+    @Benchmark
+    public long enterPlace(Cursor cursor) {
+        runtime.app.didEnterPlace(places.get(cursor.next++ & 63));
+        return runtime.webView.results.get();
+    }
+}
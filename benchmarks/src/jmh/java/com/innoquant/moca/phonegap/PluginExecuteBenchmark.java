@@ -0,0 +1,72 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCA;
+
+import org.apache.cordova.CordovaPreferences;
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Round-trip of MOCAPlugin.execute: lookup of the action, hand-off to its scheduler lane,
+ * execution and result. Each call waits for its result, as the JavaScript promise would.
+ */
+@State(Scope.Benchmark)
+public class PluginExecuteBenchmark {
+
+    private BenchmarkFixtures.Runtime runtime;
+    private JSONArray noArgs;
+    private JSONArray tagArgs;
+    private JSONArray placesNearArgs;
+
+    @Setup
+    public void setUp() throws Exception {
+        runtime = new BenchmarkFixtures.Runtime(new CordovaPreferences());
+        runtime.app.markJavaScriptReady();
+        MOCA.getProximityService().setPlaces(BenchmarkFixtures.places(1000));
+        noArgs = new JSONArray();
+        tagArgs = new JSONArray().put("bench-tag").put("+1");
+        placesNearArgs = new JSONArray().put(41.4).put(2.18).put(500);
+    }
+
+    @TearDown
+    public void tearDown() {
+        runtime.shutdown();
+    }
+
+    private void execute(String action, JSONArray args) throws InterruptedException {
+        BenchmarkFixtures.AwaitableCallbackContext ctx =
+                new BenchmarkFixtures.AwaitableCallbackContext(action, runtime.webView);
+        runtime.plugin.execute(action, args, ctx);
+        ctx.await();
+    }
+
+    @Benchmark
+    public void version() throws InterruptedException {
+        execute(MOCAAPI.VERSION, noArgs);
+    }
+
+    @Benchmark
+    public void proximityEnabled() throws InterruptedException {
+        execute(MOCAAPI.PROXIMITY_ENABLED, noArgs);
+    }
+
+    @Benchmark
+    public void addTag() throws InterruptedException {
+        execute(MOCAAPI.INSTANCE_ADD_TAG, tagArgs);
+    }
+
+    @Benchmark
+    public void placesNear() throws InterruptedException {
+        execute(MOCAAPI.PLACES_NEAR, placesNearArgs);
+    }
+
+    @Benchmark
+    public boolean invalidAction() {
+        return runtime.plugin.execute("noSuchAction", noArgs,
+                new BenchmarkFixtures.AwaitableCallbackContext("invalid", runtime.webView));
+    }
+}
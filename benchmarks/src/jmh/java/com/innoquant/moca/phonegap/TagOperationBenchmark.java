@@ -0,0 +1,46 @@
+package com.innoquant.moca.phonegap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Validation of the tag names and values received from JavaScript.
+ */
+@State(Scope.Thread)
+public class TagOperationBenchmark {
+
+    public String smallIncrement = "+1";
+    public String largeSet = "=1234567890";
+    public String invalid = "+12a";
+    public String tagName = "visited_store";
+
+    @Benchmark
+    public MOCATagOperation parseSmallIncrement() {
+        return MOCATagOperation.parse(smallIncrement);
+    }
+
+    @Benchmark
+    public MOCATagOperation parseLargeSet() {
+        return MOCATagOperation.parse(largeSet);
+    }
+
+    @Benchmark
+    public MOCATagOperation parseDefault() {
+        return MOCATagOperation.parse(null);
+    }
+
+    @Benchmark
+    public Object parseInvalid() {
+        try {
+            return MOCATagOperation.parse(invalid);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public String checkTagName() {
+        return MOCATagOperation.checkTagName(tagName);
+    }
+}
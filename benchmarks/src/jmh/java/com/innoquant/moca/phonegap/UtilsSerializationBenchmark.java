@@ -0,0 +1,80 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCABeacon;
+import com.innoquant.moca.MOCAPlace;
+import com.innoquant.moca.MOCAZone;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Encoding of the registry objects sent with every proximity event, through the Utils
+ * streaming writers and through the MessagePack transport.
+ */
+@State(Scope.Thread)
+public class UtilsSerializationBenchmark {
+
+    @Param({"false", "true"})
+    public boolean coldCache;
+
+    private MOCABeacon beacon;
+    private MOCAPlace place;
+    private MOCAZone zone;
+    private MOCACordovaEvent beaconEvent;
+    private MOCACordovaEvent beaconsDataEvent;
+
+    @Setup
+    public void setUp() {
+        beacon = BenchmarkFixtures.beacons(1).get(0);
+        place = BenchmarkFixtures.places(1).get(0);
+        zone = BenchmarkFixtures.zones(1).get(0);
+        beaconEvent = new MOCACordovaEvent(MOCAAPI.DID_ENTER_RANGE, null, beacon);
+        List<MOCABeacon> registry = BenchmarkFixtures.beacons(200);
+        beaconsDataEvent = new MOCACordovaEvent(MOCAAPI.DID_LOADED_BEACONS_DATA, null,
+                new MOCABeaconsSnapshot().update(registry));
+    }
+
+    @Setup(Level.Invocation)
+    public void invalidate() {
+        if (coldCache) {
+            Utils.invalidateSerializationCache();
+        }
+    }
+
+    @Benchmark
+    public String writeBeacon() {
+        MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+        Utils.writeBeacon(writer, beacon, 1L);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String writePlace() {
+        MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+        Utils.writePlace(writer, place, 1L);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String writeZone() {
+        MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+        Utils.writeZone(writer, zone, 1L);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public byte[] msgPackBeaconEvent() throws Exception {
+        return MOCAMsgPackEncoder.encodeEvent(MOCAAPI.DID_ENTER_RANGE, beaconEvent);
+    }
+
+    @Benchmark
+    public byte[] msgPackBeaconsData() throws Exception {
+        return MOCAMsgPackEncoder.encodeEvent(MOCAAPI.DID_LOADED_BEACONS_DATA, beaconsDataEvent);
+    }
+}
@@ -1,36 +1,52 @@
 package com.innoquant.moca.phonegap;
 
 import java.util.Arrays;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 public class MOCAAPI {
-    private static final String SET_LOG_LEVEL = "setLogLevel";
+    static final String SET_LOG_LEVEL = "setLogLevel";
     public static final String VERSION = "version";
-    private static final String APP_KEY = "appKey";
-    private static final String APP_SECRET = "appSecret";
-    private static final String INIT = "initialized";
-    private static final String LOG_LEVEL = "logLevel";
-    private static final String INSTANCE_SESSION = "instance_session";
-    private static final String INSTANCE_IDENTIFIER = "instance_identifier";
-    private static final String PROXIMITY_ENABLED = "proximityEnabled";
-    private static final String SET_PROXIMITY_ENABLED = "setProximityEnabled";
-    private static final String SET_GEOTRACKING_ENABLED = "setGeoTrackingEnabled";
-    private static final String INSTANCE_USER_LOGIN = "instance_userLogin";
-    private static final String INSTANCE_USER_LOGGED_IN = "instance_userLoggedIn";
-    private static final String INSTANCE_USER_LOGOUT = "instance_userLogout";
-    private static final String INSTANCE_SET_CUSTOM_PROPERTY = "instance_setCustomProperty";
-    private static final String INSTANCE_CUSTOM_PROPERTY = "instance_customProperty";
-    private static final String CUSTOM_PROPERTY = "customProperty";
-    private static final String PLACES_INSIDE = "placesInside";
-    private static final String PERFORM_FETCH = "performFetch";
+    static final String APP_KEY = "appKey";
+    static final String APP_SECRET = "appSecret";
+    static final String INIT = "initialized";
+    static final String LOG_LEVEL = "logLevel";
+    static final String INSTANCE_SESSION = "instance_session";
+    static final String INSTANCE_IDENTIFIER = "instance_identifier";
+    static final String PROXIMITY_ENABLED = "proximityEnabled";
+    static final String SET_PROXIMITY_ENABLED = "setProximityEnabled";
+    static final String SET_GEOTRACKING_ENABLED = "setGeoTrackingEnabled";
+    static final String INSTANCE_USER_LOGIN = "instance_userLogin";
+    static final String INSTANCE_USER_LOGGED_IN = "instance_userLoggedIn";
+    static final String INSTANCE_USER_LOGOUT = "instance_userLogout";
+    static final String INSTANCE_SET_CUSTOM_PROPERTY = "instance_setCustomProperty";
+    static final String INSTANCE_SET_CUSTOM_PROPERTIES = "instance_setCustomProperties";
+    static final String INSTANCE_CUSTOM_PROPERTY = "instance_customProperty";
+    static final String CUSTOM_PROPERTY = "customProperty";
+    static final String PLACES_INSIDE = "placesInside";
+    static final String PLACES_NEAR = "placesNear";
+    static final String BEACONS_IN_RANGE = "beaconsInRange";
+    static final String ZONES_INSIDE = "zonesInside";
+    static final String PROXIMITY_SNAPSHOT = "proximitySnapshot";
+    static final String PERFORM_FETCH = "performFetch";
+    static final String BATCH = "batch";
+    static final String RESYNC_BEACONS_DATA = "resyncBeaconsData";
+    static final String READY = "ready";
+    static final String METRICS = "metrics";
+    static final String ACK = "ack";
+    static final String SUBSCRIPTION_STATS = "subscriptionStats";
+    static final String EVENT_CHANNEL = "eventChannel";
+    static final String REMOVE_LISTENER = "removeListener";
 
     //Instance API
-    private static final String INSTANCE_ADD_TAG = "instance_add_tag";
-    private static final String INSTANCE_REMOVE_TAG = "instance_remove_tag";
-    private static final String INSTANCE_CONTAINS_TAG = "instance_contains_tag";
-    private static final String INSTANCE_GET_VALUE_FOR_TAG = "instance_get_value_for_tag";
-    private static final String INSTANCE_GET_ALL_TAGS = "instance_get_all_tags";
-    private static final String CURRENT_INSTANCE = "current_instance";
+    static final String INSTANCE_ADD_TAG = "instance_add_tag";
+    static final String INSTANCE_ADD_TAGS = "instance_add_tags";
+    static final String INSTANCE_UPDATE_TAGS = "instance_update_tags";
+    static final String INSTANCE_REMOVE_TAG = "instance_remove_tag";
+    static final String INSTANCE_CONTAINS_TAG = "instance_contains_tag";
+    static final String INSTANCE_GET_VALUE_FOR_TAG = "instance_get_value_for_tag";
+    static final String INSTANCE_GET_ALL_TAGS = "instance_get_all_tags";
+    static final String CURRENT_INSTANCE = "current_instance";
 
     //public static final String GET_REGION_STATE_FOR_PLACE_ID = "getRegionStateforPlaceId";
 
@@ -59,47 +75,15 @@ public class MOCAAPI {
     static final String DID_LOADED_BEACONS_DATA = "didLoadedBeaconsData";
 
     //User API
-    private static String USER_SET_CUSTOM_PROPERTY = "user_set_custom_property";
-    private static final String USER_GET_CUSTOM_PROPERTY = "user_custom_property";
-    private static final String USER_SAVE = "user_save";
-    private static String IS_USER_LOGGED_IN = "is_user_logged_in";
-    private static final String CURRENT_USER = "current_user";
+    static final String USER_SET_CUSTOM_PROPERTY = "user_set_custom_property";
+    static final String USER_SET_CUSTOM_PROPERTIES = "user_setCustomProperties";
+    static final String USER_GET_CUSTOM_PROPERTY = "user_custom_property";
+    static final String USER_SAVE = "user_save";
+    static final String IS_USER_LOGGED_IN = "is_user_logged_in";
+    static final String CURRENT_USER = "current_user";
 
 
-    final static List<String> knownActions = Arrays.asList(
-            SET_LOG_LEVEL,
-            VERSION,
-            APP_KEY,
-            APP_SECRET,
-            INIT,
-            LOG_LEVEL,
-            INSTANCE_SESSION,
-            INSTANCE_IDENTIFIER,
-            PROXIMITY_ENABLED,
-            SET_PROXIMITY_ENABLED,
-            INSTANCE_USER_LOGIN,
-            INSTANCE_USER_LOGGED_IN,
-            INSTANCE_USER_LOGOUT,
-            INSTANCE_SET_CUSTOM_PROPERTY,
-            INSTANCE_CUSTOM_PROPERTY,
-            CUSTOM_PROPERTY,
-            PLACES_INSIDE,
-            SET_GEOTRACKING_ENABLED,
-            PERFORM_FETCH,
-            INSTANCE_ADD_TAG,
-            INSTANCE_REMOVE_TAG,
-            INSTANCE_CONTAINS_TAG,
-            INSTANCE_GET_VALUE_FOR_TAG,
-            INSTANCE_GET_ALL_TAGS,
-            CURRENT_INSTANCE,
-            USER_SET_CUSTOM_PROPERTY,
-            USER_GET_CUSTOM_PROPERTY,
-            USER_SAVE,
-            IS_USER_LOGGED_IN,
-            CURRENT_USER
-    );
-
-    final static List<String> knownCallbackActions = Arrays.asList(
+    final static Set<String> knownCallbackActions = new HashSet<String>(Arrays.asList(
             DID_ENTER_RANGE,
             DID_EXIT_RANGE,
             BEACON_PROXIMITY_CHANGE,
@@ -117,6 +101,11 @@ public class MOCAAPI {
             PLAY_NOTIFICATION_SOUND,
             PERFORM_CUSTOM_ACTION,
             DID_LOADED_BEACONS_DATA
-    );
+    ));
+
+    //actions keeping their callback open, they never complete a batch entry
+    final static Set<String> streamingActions = new HashSet<String>(Arrays.asList(
+            EVENT_CHANNEL
+    ));
 
 }
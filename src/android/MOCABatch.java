@@ -0,0 +1,109 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.utils.logger.MLog;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Collects the results of the actions of a single "batch" bridge call and sends them back
+ * to JavaScript in one callback, once every action has answered.
+ *
+ * Each entry of the result array has the form {"action": name, "status": "ok"|"error", "result": value}
+ * and keeps the position of its call in the request.
+ */
+class MOCABatch {
+    private final CallbackContext callbackContext;
+    private final CordovaWebView webView;
+    private final JSONArray results = new JSONArray();
+    private int pending;
+
+    MOCABatch(CallbackContext callbackContext, CordovaWebView webView, int size) {
+        this.callbackContext = callbackContext;
+        this.webView = webView;
+        this.pending = size;
+        if (size == 0) {
+            callbackContext.success(results);
+        }
+    }
+
+    /**
+     * @return a callback context capturing the result of the batch entry at index
+     */
+    CallbackContext entryContext(int index, String action) {
+        return new EntryCallbackContext(index, action);
+    }
+
+    void fail(int index, String action, String message) {
+        complete(index, action, false, message);
+    }
+
+    private synchronized void complete(int index, String action, boolean ok, Object value) {
+        try {
+            JSONObject entry = new JSONObject();
+            entry.put("action", action);
+            entry.put("status", ok ? "ok" : "error");
+            entry.put("result", value);
+            results.put(index, entry);
+        } catch (JSONException e) {
+            MLog.e("Batch entry " + index + " (" + action + ") cannot be serialized: " + e);
+        }
+        pending--;
+        if (pending == 0) {
+            callbackContext.success(results);
+        }
+    }
+
+    private static Object valueOf(PluginResult result) {
+        switch (result.getMessageType()) {
+            case PluginResult.MESSAGE_TYPE_NULL:
+                return JSONObject.NULL;
+            case PluginResult.MESSAGE_TYPE_STRING:
+                return result.getStrMessage();
+            case PluginResult.MESSAGE_TYPE_JSON:
+            case PluginResult.MESSAGE_TYPE_NUMBER:
+            case PluginResult.MESSAGE_TYPE_BOOLEAN:
+                try {
+                    return new JSONTokener(result.getMessage()).nextValue();
+                } catch (JSONException e) {
+                    return result.getMessage();
+                }
+            default:
+                return result.getMessage();
+        }
+    }
+
+    private class EntryCallbackContext extends CallbackContext {
+        private final int index;
+        private final String action;
+        private boolean done;
+
+        EntryCallbackContext(int index, String action) {
+            super(callbackContext.getCallbackId() + "#" + index, webView);
+            this.index = index;
+            this.action = action;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return done;
+        }
+
+        @Override
+        public void sendPluginResult(PluginResult pluginResult) {
+            synchronized (this) {
+                if (done || pluginResult.getStatus() == PluginResult.Status.NO_RESULT.ordinal()) {
+                    return;
+                }
+                done = true;
+            }
+            boolean ok = pluginResult.getStatus() == PluginResult.Status.OK.ordinal();
+            complete(index, action, ok, valueOf(pluginResult));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCABeacon;
+
+import java.util.List;
+
+/**
+ * Payload of a didLoadedBeaconsData event: the changes of the beacon registry since the
+ * previously delivered version, or the full registry when {@link #full} is set.
+ *
+ * Encoded as {"beaconsDelta": {"version", "baseVersion", "full", "added", "changed", "removed"}};
+ * the JavaScript plugin applies it to its copy of the registry and hands the resulting beacon
+ * list to the application listeners.
+ */
+class MOCABeaconsData implements MOCAJsonWriter.Writable {
+    static final String DELTA = "beaconsDelta";
+
+    final long version;
+    final long baseVersion;
+    final boolean full;
+    final List<MOCABeacon> added;
+    final List<MOCABeacon> changed;
+    final List<String> removed;
+    final long timestamp;
+
+    MOCABeaconsData(long version, long baseVersion, boolean full,
+                    List<MOCABeacon> added, List<MOCABeacon> changed, List<String> removed) {
+        this.version = version;
+        this.baseVersion = baseVersion;
+        this.full = full;
+        this.added = added;
+        this.changed = changed;
+        this.removed = removed;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    @Override
+    public void writeTo(MOCAJsonWriter writer) {
+        writer.beginObject().name(DELTA).beginObject()
+                .name("version").value(version)
+                .name("baseVersion").value(baseVersion)
+                .name("full").value(full);
+        writer.name("added").beginArray();
+        for (MOCABeacon b : added) {
+            Utils.writeBeacon(writer, b, timestamp);
+        }
+        writer.endArray();
+        writer.name("changed").beginArray();
+        for (MOCABeacon b : changed) {
+            Utils.writeBeacon(writer, b, timestamp);
+        }
+        writer.endArray();
+        writer.name("removed").beginArray();
+        for (String id : removed) {
+            writer.value(id);
+        }
+        writer.endArray();
+        writer.endObject().endObject();
+    }
+}
@@ -0,0 +1,83 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCABeacon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Last beacon registry delivered to JavaScript, indexed by beacon id.
+ *
+ * Each registry reload is turned into a delta against the snapshot (added, changed and removed
+ * beacons) with an increasing version number. A beacon is considered changed when its encoded
+ * static fields (see {@link Utils#staticBeaconFragment}) differ from the delivered ones.
+ */
+class MOCABeaconsSnapshot {
+    private Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+    private long version;
+
+    /**
+     * Replaces the snapshot with a new registry.
+     *
+     * @return the changes since the previous version; a full registry for the first version.
+     */
+    synchronized MOCABeaconsData update(List<MOCABeacon> beacons) {
+        final Map<String, Entry> previous = entries;
+        final Map<String, Entry> next = new LinkedHashMap<String, Entry>(Math.max(16, beacons.size() * 4 / 3 + 1));
+        final List<MOCABeacon> added = new ArrayList<MOCABeacon>();
+        final List<MOCABeacon> changed = new ArrayList<MOCABeacon>();
+        for (MOCABeacon beacon : beacons) {
+            final String id = beacon.getId();
+            if (id == null) {
+                continue;
+            }
+            final Entry entry = new Entry(beacon, Utils.staticBeaconFragment(beacon));
+            next.put(id, entry);
+            final Entry old = previous.get(id);
+            if (old == null) {
+                added.add(beacon);
+            } else if (!old.fingerprint.equals(entry.fingerprint)) {
+                changed.add(beacon);
+            }
+        }
+        final List<String> removed = new ArrayList<String>();
+        for (String id : previous.keySet()) {
+            if (!next.containsKey(id)) {
+                removed.add(id);
+            }
+        }
+        entries = next;
+        final long baseVersion = version;
+        version++;
+        final boolean full = baseVersion == 0;
+        return new MOCABeaconsData(version, baseVersion, full, added, changed, removed);
+    }
+
+    /**
+     * @return the full registry at the current version, or null if no registry was loaded yet.
+     */
+    synchronized MOCABeaconsData full() {
+        if (version == 0) {
+            return null;
+        }
+        final List<MOCABeacon> all = new ArrayList<MOCABeacon>(entries.size());
+        for (Entry entry : entries.values()) {
+            all.add(entry.beacon);
+        }
+        return new MOCABeaconsData(version, version, true, all,
+                Collections.<MOCABeacon>emptyList(), Collections.<String>emptyList());
+    }
+
+    private static final class Entry {
+        final MOCABeacon beacon;
+        final String fingerprint;
+
+        Entry(MOCABeacon beacon, String fingerprint) {
+            this.beacon = beacon;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -11,17 +11,76 @@ public class MOCACallbackContext {
     private CallbackContext _context;
     private JSONArray _args = new JSONArray();
     private Boolean _booleanArg = false;
+    private final MOCAEventFilter _filter;
+    private final MOCADeliveryControl _delivery;
+    private final int _listenerId;
 
     public MOCACallbackContext(CallbackContext ctx, JSONArray args) {
+        this(ctx, args, null, null);
+    }
+
+    MOCACallbackContext(CallbackContext ctx, JSONArray args, MOCAEventFilter filter, MOCADeliveryControl delivery) {
+        this(ctx, args, filter, delivery, -1);
+    }
+
+    MOCACallbackContext(CallbackContext ctx, JSONArray args, MOCAEventFilter filter, MOCADeliveryControl delivery,
+                        int listenerId) {
         _context = ctx;
         _args = args;
+        _filter = filter;
+        _delivery = delivery;
+        _listenerId = listenerId;
         setBooleanArg(args);
     }
 
+    /**
+     * @return the id the JavaScript side gave to this listener, -1 if none.
+     */
+    int getListenerId() {
+        return _listenerId;
+    }
+
+    /**
+     * @return true if the events of this listener can be sent in event frames: it has a
+     * listener id and no flow control of its own.
+     */
+    boolean isFrameable() {
+        return _listenerId >= 0 && _delivery == null;
+    }
+
+    /**
+     * @return true if this subscription wants the event with the given payload.
+     */
+    boolean accepts(Object data) {
+        return _filter == null || _filter.accept(data);
+    }
+
+    /**
+     * @param payload event detail, as journaled
+     */
+    boolean acceptsJournaled(String payload) {
+        return _filter == null || _filter.acceptJournaled(payload);
+    }
+
     public void sendPluginResult(PluginResult result){
         _context.sendPluginResult(result);
     }
 
+    /**
+     * Sends an event, subject to the subscription rate limit and ack window if any.
+     */
+    void deliver(PluginResult result) {
+        if (_delivery != null) {
+            _delivery.offer(result);
+        } else {
+            _context.sendPluginResult(result);
+        }
+    }
+
+    MOCADeliveryControl getDeliveryControl() {
+        return _delivery;
+    }
+
     public JSONArray getArgs() {
         return _args;
     }
@@ -0,0 +1,82 @@
+package com.innoquant.moca.phonegap;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry of the JavaScript callbacks subscribed to each event.
+ *
+ * Registration is rare and event delivery frequent, so writers copy the whole registry and
+ * publish it through a volatile field, while readers (SDK listener threads) use the current
+ * copy without locking. Several callbacks may subscribe to the same event.
+ */
+class MOCACallbackRegistry {
+    private static final MOCACallbackContext[] NONE = new MOCACallbackContext[0];
+
+    private volatile Map<String, MOCACallbackContext[]> subscribers = Collections.emptyMap();
+
+    synchronized void add(String eventName, MOCACallbackContext callbackContext) {
+        Map<String, MOCACallbackContext[]> next = new HashMap<String, MOCACallbackContext[]>(subscribers);
+        MOCACallbackContext[] current = next.get(eventName);
+        MOCACallbackContext[] updated;
+        if (current == null) {
+            updated = new MOCACallbackContext[]{callbackContext};
+        } else {
+            updated = new MOCACallbackContext[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, current.length);
+            updated[current.length] = callbackContext;
+        }
+        next.put(eventName, updated);
+        subscribers = next;
+    }
+
+    /**
+     * Removes the callback of a listener. An event left without callbacks is removed too, so
+     * that {@link #contains(String)} reports it as not subscribed.
+     *
+     * @return the removed callback, or null if the listener is not subscribed to the event.
+     */
+    synchronized MOCACallbackContext remove(String eventName, int listenerId) {
+        MOCACallbackContext[] current = subscribers.get(eventName);
+        if (current == null || listenerId < 0) {
+            return null;
+        }
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].getListenerId() != listenerId) {
+                continue;
+            }
+            Map<String, MOCACallbackContext[]> next = new HashMap<String, MOCACallbackContext[]>(subscribers);
+            if (current.length == 1) {
+                next.remove(eventName);
+            } else {
+                MOCACallbackContext[] updated = new MOCACallbackContext[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                next.put(eventName, updated);
+            }
+            subscribers = next;
+            return current[i];
+        }
+        return null;
+    }
+
+    /**
+     * Removes every subscription, e.g. when the WebView is reloaded and its callbacks are gone.
+     */
+    synchronized void clear() {
+        subscribers = Collections.emptyMap();
+    }
+
+    /**
+     * @return the callbacks subscribed to the event. The returned array must not be modified.
+     */
+    MOCACallbackContext[] get(String eventName) {
+        MOCACallbackContext[] callbacks = subscribers.get(eventName);
+        return callbacks != null ? callbacks : NONE;
+    }
+
+    boolean contains(String eventName) {
+        return subscribers.containsKey(eventName);
+    }
+}
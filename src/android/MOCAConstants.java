@@ -6,4 +6,28 @@ class MOCAConstants {
     static final String APP_KEY = "moca_app_key";
     static final String APP_SECRET = "moca_app_secret";
     static final String GCM_SENDER_ID = "gcm_sender_id";
+    //Bridge scheduler lane sizes (config.xml preferences)
+    static final String READ_LANE_THREADS = "moca_read_lane_threads";
+    static final String NETWORK_LANE_THREADS = "moca_network_lane_threads";
+    //Startup event queue (config.xml preferences)
+    static final String EVENT_QUEUE_CAPACITY = "moca_event_queue_capacity";
+    static final String EVENT_QUEUE_OVERFLOW = "moca_event_queue_overflow";
+    //Beacon proximity change coalescing window, 0 disables it (config.xml preference)
+    static final String PROXIMITY_COALESCE_MS = "moca_proximity_coalesce_ms";
+    //Event transport: "json" (default) or "msgpack" (config.xml preference).
+    //Cordova base64 encodes binary results on their way to the WebView.
+    static final String EVENT_TRANSPORT = "moca_event_transport";
+    static final String EVENT_TRANSPORT_MSGPACK = "msgpack";
+    //On-disk journal of the proximity events raised without JavaScript listeners (config.xml preferences)
+    static final String EVENT_JOURNAL = "moca_event_journal";
+    static final String EVENT_JOURNAL_MAX_KB = "moca_event_journal_max_kb";
+    static final String EVENT_JOURNAL_MAX_AGE_S = "moca_event_journal_max_age_s";
+    //Bridge and event delivery metrics (config.xml preference)
+    static final String METRICS = "moca_metrics";
+    //Window within which user saves are merged, 0 saves on every call (config.xml preference)
+    static final String USER_SAVE_WINDOW_MS = "moca_user_save_window_ms";
+    //Micro-batched event delivery (config.xml preferences)
+    static final String EVENT_FRAMES = "moca_event_frames";
+    static final String EVENT_FRAME_MS = "moca_event_frame_ms";
+    static final String EVENT_FRAME_EVENTS = "moca_event_frame_events";
 }
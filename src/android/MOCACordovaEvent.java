@@ -24,7 +24,10 @@ class MOCACordovaEvent {
     static final long EXPIRE_TIME_MS = 3 * 1000;
     private final String eventName;
     private final Object data;
+    private final long createdAt;
+    private final long createdAtNanos;
     private final long expireDate;
+    private final long timestamp;
     private MOCACordovaAction mocaAction;
 
     MOCACordovaEvent(String eventName, MOCAAction mocaAction, Object data) {
@@ -33,7 +36,10 @@ class MOCACordovaEvent {
         if (mocaAction != null) {
             this.mocaAction = new MOCACordovaAction(mocaAction);
         }
-        expireDate = SystemClock.elapsedRealtime() + EXPIRE_TIME_MS;
+        createdAt = SystemClock.elapsedRealtime();
+        createdAtNanos = System.nanoTime();
+        expireDate = createdAt + EXPIRE_TIME_MS;
+        timestamp = System.currentTimeMillis();
     }
 
     boolean isExpired() {
@@ -41,6 +47,24 @@ class MOCACordovaEvent {
         return currentTime >= expireDate;
     }
 
+    long getRemainingTimeMs() {
+        return expireDate - SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * @return time elapsed since the event was raised.
+     */
+    long getQueuedTimeMs() {
+        return SystemClock.elapsedRealtime() - createdAt;
+    }
+
+    /**
+     * @return nanoseconds elapsed since the event was raised, for latency metrics.
+     */
+    long getAgeNanos() {
+        return System.nanoTime() - createdAtNanos;
+    }
+
     boolean hasAction() {
         return mocaAction != null;
     }
@@ -53,6 +77,13 @@ class MOCACordovaEvent {
         return data;
     }
 
+    /**
+     * @return wall clock time at which the event was raised by the SDK.
+     */
+    long getTimestamp() {
+        return timestamp;
+    }
+
     void fireAction() {
         if (mocaAction != null) {
             MLog.d("\t\tEvent has an associated action. will fire");
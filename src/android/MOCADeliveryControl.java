@@ -0,0 +1,205 @@
+package com.innoquant.moca.phonegap;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+
+/**
+ * Flow control of the events sent to one subscription, configured from the listener options:
+ *
+ * <pre>
+ * {
+ *   "rate": 5,               // events per second (token bucket), 0 or absent for no limit
+ *   "burst": 10,             // bucket size, defaults to max(1, rate)
+ *   "overflow": "latest",    // when an event cannot be sent: "drop", "latest" (keep only the
+ *                            // newest pending event) or "buffer" (keep up to bufferSize)
+ *   "bufferSize": 16,
+ *   "ackWindow": 20,         // at most this many unacknowledged events in flight
+ *   "subscriptionId": "..."  // required with ackWindow, used by the ack action
+ * }
+ * </pre>
+ *
+ * Pending events are sent as soon as tokens are refilled (on the plugin timer wheel) or
+ * acknowledgements arrive.
+ */
+class MOCADeliveryControl {
+
+    enum Overflow {
+        DROP,
+        LATEST,
+        BUFFER;
+
+        static Overflow fromString(String value) {
+            if ("drop".equalsIgnoreCase(value)) return DROP;
+            if ("buffer".equalsIgnoreCase(value)) return BUFFER;
+            if (value == null || "latest".equalsIgnoreCase(value)) return LATEST;
+            throw new IllegalArgumentException("Invalid overflow policy '" + value + "', expected drop, latest or buffer");
+        }
+    }
+
+    static final int DEFAULT_BUFFER_SIZE = 16;
+
+    private final CallbackContext callbackContext;
+    private final MOCATimerWheel timerWheel;
+    private final String subscriptionId;
+    private final double ratePerMs;
+    private final double burst;
+    private final Overflow overflow;
+    private final int capacity;
+    private final int ackWindow;
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (MOCADeliveryControl.this) {
+                drainTimeout = null;
+                drain();
+            }
+        }
+    };
+
+    private final ArrayDeque<PluginResult> pending = new ArrayDeque<PluginResult>();
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private int unacked;
+    private MOCATimerWheel.Timeout drainTimeout;
+    private long delivered;
+    private long dropped;
+    private long coalesced;
+
+    private MOCADeliveryControl(CallbackContext callbackContext, MOCATimerWheel timerWheel, JSONObject options) {
+        this.callbackContext = callbackContext;
+        this.timerWheel = timerWheel;
+        final double rate = Math.max(0, options.optDouble("rate", 0));
+        this.ratePerMs = rate / 1000;
+        this.burst = Math.max(1, options.optDouble("burst", Math.max(1, rate)));
+        this.tokens = burst;
+        this.overflow = Overflow.fromString(options.has("overflow") ? options.optString("overflow") : null);
+        switch (overflow) {
+            case DROP:
+                capacity = 0;
+                break;
+            case LATEST:
+                capacity = 1;
+                break;
+            default:
+                capacity = Math.max(1, options.optInt("bufferSize", DEFAULT_BUFFER_SIZE));
+                break;
+        }
+        this.ackWindow = Math.max(0, options.optInt("ackWindow", 0));
+        this.subscriptionId = options.has("subscriptionId") ? options.optString("subscriptionId") : null;
+        if (ackWindow > 0 && subscriptionId == null) {
+            throw new IllegalArgumentException("ackWindow requires a subscriptionId");
+        }
+    }
+
+    /**
+     * @return the delivery control described by the listener options, or null if they
+     * do not ask for any.
+     * @throws IllegalArgumentException if the options are invalid.
+     */
+    static MOCADeliveryControl fromOptions(JSONObject options, CallbackContext callbackContext,
+                                           MOCATimerWheel timerWheel) throws IllegalArgumentException {
+        if (options == null || !(options.has("rate") || options.has("ackWindow"))) {
+            return null;
+        }
+        return new MOCADeliveryControl(callbackContext, timerWheel, options);
+    }
+
+    String getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    synchronized void offer(PluginResult result) {
+        if (pending.isEmpty() && canSend()) {
+            send(result);
+            return;
+        }
+        if (capacity == 0) {
+            dropped++;
+        } else {
+            if (pending.size() >= capacity) {
+                pending.poll();
+                if (overflow == Overflow.LATEST) {
+                    coalesced++;
+                } else {
+                    dropped++;
+                }
+            }
+            pending.add(result);
+        }
+        scheduleDrain();
+    }
+
+    synchronized void ack(int count) {
+        unacked = Math.max(0, unacked - Math.max(0, count));
+        drain();
+    }
+
+    /**
+     * Drops the pending events, when the listener is removed.
+     */
+    synchronized void close() {
+        if (drainTimeout != null) {
+            drainTimeout.cancel();
+            drainTimeout = null;
+        }
+        pending.clear();
+    }
+
+    synchronized JSONObject statsToJSON() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("delivered", delivered);
+        json.put("dropped", dropped);
+        json.put("coalesced", coalesced);
+        json.put("pending", pending.size());
+        json.put("unacked", unacked);
+        return json;
+    }
+
+    private void drain() {
+        while (!pending.isEmpty() && canSend()) {
+            send(pending.poll());
+        }
+        if (!pending.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private boolean canSend() {
+        if (ackWindow > 0 && unacked >= ackWindow) {
+            return false;
+        }
+        if (ratePerMs > 0) {
+            final long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAt) / 1e6 * ratePerMs);
+            refilledAt = now;
+            return tokens >= 1;
+        }
+        return true;
+    }
+
+    private void send(PluginResult result) {
+        if (ratePerMs > 0) {
+            tokens -= 1;
+        }
+        if (ackWindow > 0) {
+            unacked++;
+        }
+        delivered++;
+        callbackContext.sendPluginResult(result);
+    }
+
+    /**
+     * Waits for the next token. Events held back by the ack window are sent on ack instead.
+     */
+    private void scheduleDrain() {
+        if (drainTimeout != null || ratePerMs == 0 || tokens >= 1) {
+            return;
+        }
+        final long delayMs = (long) Math.ceil((1 - tokens) / ratePerMs);
+        drainTimeout = timerWheel.schedule(drainTask, delayMs);
+    }
+}
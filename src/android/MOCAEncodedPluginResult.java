@@ -0,0 +1,28 @@
+package com.innoquant.moca.phonegap;
+
+import org.apache.cordova.PluginResult;
+
+/**
+ * PluginResult carrying an already encoded JSON message.
+ *
+ * Cordova builds JSON messages from org.json objects and stringifies them once more; this
+ * result hands the bridge a payload produced by {@link MOCAJsonWriter} as is.
+ */
+class MOCAEncodedPluginResult extends PluginResult {
+    private final String encodedMessage;
+
+    MOCAEncodedPluginResult(Status status, String encodedJson) {
+        super(status, (String) null);
+        this.encodedMessage = encodedJson;
+    }
+
+    @Override
+    public int getMessageType() {
+        return MESSAGE_TYPE_JSON;
+    }
+
+    @Override
+    public String getMessage() {
+        return encodedMessage;
+    }
+}
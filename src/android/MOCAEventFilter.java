@@ -0,0 +1,362 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCABeacon;
+import com.innoquant.moca.MOCAPlace;
+import com.innoquant.moca.MOCAProximity;
+import com.innoquant.moca.MOCAZone;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Subscription filter of an event listener, compiled once into a list of predicates from
+ * the listener options, such as:
+ *
+ * <pre>
+ * {
+ *   "ids": ["id1", "id2"],          // beacon, place or zone ids
+ *   "uuid": "B9407F30-...",         // beacon proximity UUID
+ *   "major": [10, 20],              // beacon major, a value or an inclusive range
+ *   "minor": 7,                     // beacon minor, a value or an inclusive range
+ *   "proximity": "near",            // farthest accepted proximity: immediate, near or far
+ *   "namePrefix": ["Dept A", "Hall"] // beacon, place or zone name prefixes
+ * }
+ * </pre>
+ *
+ * An event passes when every predicate accepts it. Beacon predicates reject events about
+ * places and zones and vice versa; events that are not about a beacon, place or zone (e.g.
+ * actions) are never filtered. The proximity threshold applies to beacon events: the current
+ * proximity of proximity changes, and the proximity of the beacon otherwise. Place and zone
+ * events carry no proximity and pass it.
+ *
+ * Journaled events are filtered from the JSON they were journaled as, which keeps the type,
+ * id, uuid, major, minor, name and proximity of the entity, and the current proximity of
+ * proximity changes.
+ */
+class MOCAEventFilter {
+
+    interface Predicate {
+        boolean accept(Object data);
+
+        boolean acceptJson(JSONObject detail);
+    }
+
+    private final Predicate[] predicates;
+
+    private MOCAEventFilter(Predicate[] predicates) {
+        this.predicates = predicates;
+    }
+
+    /**
+     * @return the filter, or null if the options do not filter anything.
+     * @throws IllegalArgumentException if the options are invalid.
+     */
+    static MOCAEventFilter compile(JSONObject options) throws IllegalArgumentException {
+        final List<Predicate> predicates = new ArrayList<Predicate>();
+        if (options.has("ids")) {
+            predicates.add(new IdPredicate(stringSet(options, "ids")));
+        }
+        if (options.has("uuid")) {
+            predicates.add(new UuidPredicate(options.optString("uuid").toLowerCase(Locale.US)));
+        }
+        if (options.has("major")) {
+            final long[] range = range(options, "major");
+            predicates.add(new BeaconNumberPredicate(true, range[0], range[1]));
+        }
+        if (options.has("minor")) {
+            final long[] range = range(options, "minor");
+            predicates.add(new BeaconNumberPredicate(false, range[0], range[1]));
+        }
+        if (options.has("proximity")) {
+            final int threshold = proximityRank(options.optString("proximity"));
+            if (threshold == UNKNOWN_RANK) {
+                throw new IllegalArgumentException("Invalid proximity filter, expected immediate, near or far");
+            }
+            predicates.add(new ProximityPredicate(threshold));
+        }
+        if (options.has("namePrefix")) {
+            predicates.add(new NamePrefixPredicate(stringSet(options, "namePrefix").toArray(new String[0])));
+        }
+        if (predicates.isEmpty()) {
+            return null;
+        }
+        return new MOCAEventFilter(predicates.toArray(new Predicate[predicates.size()]));
+    }
+
+    boolean accept(Object data) {
+        for (Predicate predicate : predicates) {
+            if (!predicate.accept(data)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param payload event detail, as journaled
+     */
+    boolean acceptJournaled(String payload) {
+        final JSONObject detail;
+        try {
+            detail = new JSONObject(payload);
+        } catch (JSONException e) {
+            return true;
+        }
+        for (Predicate predicate : predicates) {
+            if (!predicate.acceptJson(detail)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Predicates */
+
+    private static final int UNKNOWN_RANK = Integer.MAX_VALUE;
+
+    private static int proximityRank(String proximity) {
+        if (proximity == null) {
+            return UNKNOWN_RANK;
+        }
+        final String name = proximity.toLowerCase(Locale.US);
+        if (name.equals("immediate")) return 1;
+        if (name.equals("near")) return 2;
+        if (name.equals("far")) return 3;
+        return UNKNOWN_RANK;
+    }
+
+    private static MOCABeacon beaconOf(Object data) {
+        if (data instanceof MOCABeacon) {
+            return (MOCABeacon) data;
+        }
+        if (data instanceof MOCAProximityChange) {
+            return ((MOCAProximityChange) data).beacon;
+        }
+        return null;
+    }
+
+    private static boolean isProximityEntity(Object data) {
+        return data instanceof MOCABeacon || data instanceof MOCAProximityChange
+                || data instanceof MOCAPlace || data instanceof MOCAZone;
+    }
+
+    private static JSONObject jsonBeaconOf(JSONObject detail) {
+        if ("beacon".equals(detail.optString("type"))) {
+            return detail;
+        }
+        if (detail.has("curProximity")) {
+            return detail.optJSONObject("beacon");
+        }
+        return null;
+    }
+
+    private static JSONObject jsonEntityOf(JSONObject detail) {
+        final JSONObject beacon = jsonBeaconOf(detail);
+        if (beacon != null) {
+            return beacon;
+        }
+        final String type = detail.optString("type");
+        return "place".equals(type) || "zone".equals(type) ? detail : null;
+    }
+
+    private static final class IdPredicate implements Predicate {
+        private final Set<String> ids;
+
+        IdPredicate(Set<String> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean accept(Object data) {
+            final MOCABeacon beacon = beaconOf(data);
+            if (beacon != null) {
+                return ids.contains(beacon.getId());
+            }
+            if (data instanceof MOCAPlace) {
+                return ids.contains(((MOCAPlace) data).getId());
+            }
+            if (data instanceof MOCAZone) {
+                return ids.contains(((MOCAZone) data).getId());
+            }
+            return true;
+        }
+
+        @Override
+        public boolean acceptJson(JSONObject detail) {
+            final JSONObject entity = jsonEntityOf(detail);
+            return entity == null || ids.contains(entity.optString("id"));
+        }
+    }
+
+    private static final class UuidPredicate implements Predicate {
+        private final String uuid;
+
+        UuidPredicate(String uuid) {
+            this.uuid = uuid;
+        }
+
+        @Override
+        public boolean accept(Object data) {
+            final MOCABeacon beacon = beaconOf(data);
+            if (beacon == null) {
+                return !isProximityEntity(data);
+            }
+            return beacon.getProximityUUID() != null && uuid.equalsIgnoreCase(beacon.getProximityUUID().toString());
+        }
+
+        @Override
+        public boolean acceptJson(JSONObject detail) {
+            final JSONObject beacon = jsonBeaconOf(detail);
+            if (beacon == null) {
+                return jsonEntityOf(detail) == null;
+            }
+            return uuid.equalsIgnoreCase(beacon.optString("uuid"));
+        }
+    }
+
+    private static final class BeaconNumberPredicate implements Predicate {
+        private final boolean major;
+        private final long min;
+        private final long max;
+
+        BeaconNumberPredicate(boolean major, long min, long max) {
+            this.major = major;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public boolean accept(Object data) {
+            final MOCABeacon beacon = beaconOf(data);
+            if (beacon == null) {
+                return !isProximityEntity(data);
+            }
+            final long value = major ? beacon.getMajor() : beacon.getMinor();
+            return value >= min && value <= max;
+        }
+
+        @Override
+        public boolean acceptJson(JSONObject detail) {
+            final JSONObject beacon = jsonBeaconOf(detail);
+            if (beacon == null) {
+                return jsonEntityOf(detail) == null;
+            }
+            final long value = beacon.optLong(major ? "major" : "minor");
+            return value >= min && value <= max;
+        }
+    }
+
+    private static final class ProximityPredicate implements Predicate {
+        private final int threshold;
+
+        ProximityPredicate(int threshold) {
+            this.threshold = threshold;
+        }
+
+        @Override
+        public boolean accept(Object data) {
+            final MOCAProximity proximity;
+            if (data instanceof MOCAProximityChange) {
+                proximity = ((MOCAProximityChange) data).curProximity;
+            } else if (data instanceof MOCABeacon) {
+                proximity = ((MOCABeacon) data).getProximity();
+            } else {
+                return true;
+            }
+            return proximity != null && proximityRank(proximity.toString()) <= threshold;
+        }
+
+        @Override
+        public boolean acceptJson(JSONObject detail) {
+            if (detail.has("curProximity")) {
+                return proximityRank(detail.optString("curProximity", null)) <= threshold;
+            }
+            if ("beacon".equals(detail.optString("type"))) {
+                return proximityRank(detail.optString("proximity", null)) <= threshold;
+            }
+            return true;
+        }
+    }
+
+    private static final class NamePrefixPredicate implements Predicate {
+        private final String[] prefixes;
+
+        NamePrefixPredicate(String[] prefixes) {
+            this.prefixes = prefixes;
+        }
+
+        @Override
+        public boolean accept(Object data) {
+            final String name;
+            final MOCABeacon beacon = beaconOf(data);
+            if (beacon != null) {
+                name = beacon.getName();
+            } else if (data instanceof MOCAPlace) {
+                name = ((MOCAPlace) data).getName();
+            } else if (data instanceof MOCAZone) {
+                name = ((MOCAZone) data).getName();
+            } else {
+                return true;
+            }
+            return matches(name);
+        }
+
+        @Override
+        public boolean acceptJson(JSONObject detail) {
+            final JSONObject entity = jsonEntityOf(detail);
+            return entity == null || matches(entity.optString("name", null));
+        }
+
+        private boolean matches(String name) {
+            if (name == null) {
+                return false;
+            }
+            for (String prefix : prefixes) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /* Options parsing */
+
+    private static Set<String> stringSet(JSONObject options, String key) {
+        final Set<String> values = new HashSet<String>();
+        final JSONArray array = options.optJSONArray(key);
+        if (array != null) {
+            for (int i = 0; i < array.length(); i++) {
+                values.add(array.optString(i));
+            }
+        } else if (options.opt(key) instanceof String) {
+            values.add(options.optString(key));
+        } else {
+            throw new IllegalArgumentException("Invalid '" + key + "' filter, expected a string or an array of strings");
+        }
+        return values;
+    }
+
+    private static long[] range(JSONObject options, String key) {
+        final JSONArray array = options.optJSONArray(key);
+        if (array != null) {
+            if (array.length() != 2) {
+                throw new IllegalArgumentException("Invalid '" + key + "' filter, expected [min, max]");
+            }
+            return new long[]{array.optLong(0), array.optLong(1)};
+        }
+        final Object value = options.opt(key);
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException("Invalid '" + key + "' filter, expected a number or [min, max]");
+        }
+        final long number = ((Number) value).longValue();
+        return new long[]{number, number};
+    }
+}
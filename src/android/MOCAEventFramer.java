@@ -0,0 +1,116 @@
+package com.innoquant.moca.phonegap;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+
+/**
+ * Groups the events of every subscription into frames sent to JavaScript as a single
+ * PluginResult through the event channel callback. A frame is flushed frameMs after its first
+ * event or when it holds maxEvents events, whichever comes first.
+ *
+ * A frame is a JSON array of {"s": [listener ids], "e": event name, "d": event payload},
+ * in delivery order; www/MOCA.js hands each payload to the listed listeners.
+ */
+class MOCAEventFramer {
+
+    static final int DEFAULT_FRAME_MS = 50;
+    static final int DEFAULT_FRAME_EVENTS = 32;
+
+    private final MOCATimerWheel timerWheel;
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    private volatile boolean enabled;
+    private volatile CallbackContext channel;
+    private long frameMs = DEFAULT_FRAME_MS;
+    private int maxEvents = DEFAULT_FRAME_EVENTS;
+    private final StringBuilder frame = new StringBuilder();
+    private int count;
+    private MOCATimerWheel.Timeout flushTimeout;
+
+    MOCAEventFramer(MOCATimerWheel timerWheel) {
+        this.timerWheel = timerWheel;
+    }
+
+    synchronized void configure(boolean enabled, int frameMs, int maxEvents) {
+        this.frameMs = Math.max(1, frameMs);
+        this.maxEvents = Math.max(1, maxEvents);
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return true if events should be framed: framing is enabled and JavaScript registered
+     * the event channel.
+     */
+    boolean isActive() {
+        return enabled && channel != null;
+    }
+
+    void setChannel(CallbackContext channel) {
+        this.channel = channel;
+        PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
+        result.setKeepCallback(true);
+        channel.sendPluginResult(result);
+    }
+
+    /**
+     * Drops the channel and the pending frame, e.g. when the WebView reloads.
+     */
+    synchronized void clearChannel() {
+        channel = null;
+        resetFrame();
+    }
+
+    /**
+     * Appends an event to the current frame.
+     *
+     * @param listenerIds ids of the JavaScript listeners the event goes to, the first count ones
+     * @param payload     encoded JSON payload of the event
+     */
+    synchronized void append(int[] listenerIds, int count, String eventName, String payload) {
+        frame.append(this.count == 0 ? '[' : ',').append("{\"s\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                frame.append(',');
+            }
+            frame.append(listenerIds[i]);
+        }
+        frame.append("],\"e\":\"").append(eventName).append("\",\"d\":").append(payload).append('}');
+        this.count++;
+        if (this.count >= maxEvents) {
+            flush();
+        } else if (flushTimeout == null) {
+            flushTimeout = timerWheel.schedule(flushTask, frameMs);
+        }
+    }
+
+    /**
+     * Sends the current frame. Frames are sent while holding the lock, so they reach the
+     * WebView in order.
+     */
+    synchronized void flush() {
+        if (count == 0) {
+            return;
+        }
+        final String json = frame.append(']').toString();
+        final CallbackContext target = channel;
+        resetFrame();
+        if (target != null) {
+            PluginResult result = new MOCAEncodedPluginResult(PluginResult.Status.OK, json);
+            result.setKeepCallback(true);
+            target.sendPluginResult(result);
+        }
+    }
+
+    private void resetFrame() {
+        frame.setLength(0);
+        count = 0;
+        if (flushTimeout != null) {
+            flushTimeout.cancel();
+            flushTimeout = null;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.utils.logger.MLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the proximity events raised while no JavaScript callback could receive them,
+ * e.g. when Android launches the application in the background and Cordova never creates the
+ * WebView. Journaled events are replayed once a callback for them registers.
+ *
+ * Records are framed as [int length][int crc32][long timestamp][short name length][name][payload],
+ * where length and crc32 cover everything after the crc. A torn or corrupt record left by a crash
+ * ends the readable journal; the journal is truncated before it on the first append, so new
+ * records are never written after it. Appends are forced to disk. Rewrites (replay, trimming)
+ * go through a temporary file renamed over the journal, so they are atomic.
+ *
+ * The journal is capped in size (oldest records are dropped first) and in age.
+ */
+class MOCAEventJournal {
+
+    static final int DEFAULT_MAX_BYTES = 256 * 1024;
+    static final long DEFAULT_MAX_AGE_MS = 24 * 60 * 60 * 1000L;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1024 * 1024;
+
+    interface Selector {
+        boolean select(Record record);
+    }
+
+    static final class Record {
+        final long timestamp;
+        final String eventName;
+        final String payload;
+
+        Record(long timestamp, String eventName, String payload) {
+            this.timestamp = timestamp;
+            this.eventName = eventName;
+            this.payload = payload;
+        }
+    }
+
+    private final File file;
+    private final File tmpFile;
+    private final CRC32 crc = new CRC32();
+    private int maxBytes = DEFAULT_MAX_BYTES;
+    private long maxAgeMs = DEFAULT_MAX_AGE_MS;
+    // whether the journal is known to end with a whole record
+    private boolean tailChecked;
+
+    MOCAEventJournal(File file) {
+        this.file = file;
+        this.tmpFile = new File(file.getPath() + ".tmp");
+    }
+
+    synchronized void configure(int maxBytes, long maxAgeMs) {
+        this.maxBytes = Math.max(4 * 1024, maxBytes);
+        this.maxAgeMs = Math.max(1000, maxAgeMs);
+    }
+
+    /**
+     * Appends an event to the journal.
+     *
+     * @param payload encoded JSON of the event detail
+     */
+    synchronized void append(String eventName, long timestamp, String payload) {
+        final ByteBuffer record = encode(new Record(timestamp, eventName, payload));
+        if (record.remaining() > maxBytes) {
+            MLog.w("Event '" + eventName + "' is too large to be journaled");
+            return;
+        }
+        try {
+            if (file.length() + record.remaining() > maxBytes) {
+                trim(maxBytes * 3 / 4 - record.remaining());
+            }
+            final long validLength = tailChecked ? -1 : scan(null);
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                FileChannel channel = raf.getChannel();
+                if (validLength >= 0 && validLength < channel.size()) {
+                    MLog.w("Discarding " + (channel.size() - validLength) + " bytes at the end of the event journal");
+                    channel.truncate(validLength);
+                }
+                tailChecked = true;
+                channel.position(channel.size());
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+                channel.force(false);
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            //the record may have been partially written
+            tailChecked = false;
+            MLog.e("Cannot append event '" + eventName + "' to the journal: " + e);
+        }
+    }
+
+    /**
+     * Removes from the journal the records selected by the selector, along with the records
+     * older than the age cap.
+     *
+     * @return the selected records, in the order they were journaled.
+     */
+    synchronized List<Record> replay(Selector selector) {
+        final List<Record> selected = new ArrayList<Record>();
+        if (!file.exists()) {
+            return selected;
+        }
+        try {
+            final List<Record> records = readAll();
+            final long oldest = System.currentTimeMillis() - maxAgeMs;
+            final List<Record> kept = new ArrayList<Record>();
+            for (Record record : records) {
+                if (record.timestamp < oldest) {
+                    continue;
+                }
+                if (selector.select(record)) {
+                    selected.add(record);
+                } else {
+                    kept.add(record);
+                }
+            }
+            if (!selected.isEmpty() || kept.size() != records.size()) {
+                rewrite(kept);
+            }
+        } catch (IOException e) {
+            MLog.e("Cannot replay the event journal: " + e);
+        }
+        return selected;
+    }
+
+    /**
+     * Drops aged records, then the oldest ones until the journal fits in targetBytes.
+     */
+    private void trim(int targetBytes) throws IOException {
+        final List<Record> records = readAll();
+        final long oldest = System.currentTimeMillis() - maxAgeMs;
+        final List<ByteBuffer> encoded = new ArrayList<ByteBuffer>(records.size());
+        long total = 0;
+        for (Record record : records) {
+            if (record.timestamp >= oldest) {
+                ByteBuffer buffer = encode(record);
+                encoded.add(buffer);
+                total += buffer.remaining();
+            }
+        }
+        int first = 0;
+        while (first < encoded.size() && total > targetBytes) {
+            total -= encoded.get(first).remaining();
+            first++;
+        }
+        if (first > 0) {
+            MLog.w("Event journal full. Dropping " + first + " oldest events");
+        }
+        writeAtomically(encoded.subList(first, encoded.size()));
+    }
+
+    private void rewrite(List<Record> records) throws IOException {
+        final List<ByteBuffer> encoded = new ArrayList<ByteBuffer>(records.size());
+        for (Record record : records) {
+            encoded.add(encode(record));
+        }
+        writeAtomically(encoded);
+    }
+
+    private void writeAtomically(List<ByteBuffer> records) throws IOException {
+        if (records.isEmpty()) {
+            if (file.exists() && !file.delete()) {
+                throw new IOException("cannot delete " + file);
+            }
+            tailChecked = true;
+            return;
+        }
+        RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            channel.truncate(0);
+            for (ByteBuffer record : records) {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            }
+            channel.force(false);
+        } finally {
+            raf.close();
+        }
+        if (!tmpFile.renameTo(file)) {
+            throw new IOException("cannot rename " + tmpFile + " to " + file);
+        }
+        tailChecked = true;
+    }
+
+    private List<Record> readAll() throws IOException {
+        final List<Record> records = new ArrayList<Record>();
+        scan(records);
+        return records;
+    }
+
+    /**
+     * Reads the journal up to the first torn or corrupt record.
+     *
+     * @param records receives the records read, may be null
+     * @return the length of the valid part of the journal.
+     */
+    private long scan(List<Record> records) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return 0;
+        }
+        int validLength = 0;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= HEADER_BYTES) {
+                final int start = buffer.position();
+                final int length = buffer.getInt();
+                final int checksum = buffer.getInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES || length > buffer.remaining()) {
+                    MLog.w("Event journal truncated at offset " + start);
+                    break;
+                }
+                final byte[] body = new byte[length];
+                buffer.get(body);
+                crc.reset();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    MLog.w("Corrupt event journal record at offset " + start);
+                    break;
+                }
+                try {
+                    final Record record = decode(ByteBuffer.wrap(body));
+                    if (records != null) {
+                        records.add(record);
+                    }
+                } catch (BufferUnderflowException e) {
+                    MLog.w("Malformed event journal record at offset " + start);
+                    break;
+                }
+                validLength = buffer.position();
+            }
+        } finally {
+            raf.close();
+        }
+        return validLength;
+    }
+
+    private ByteBuffer encode(Record record) {
+        final byte[] name = record.eventName.getBytes(UTF8);
+        final byte[] payload = record.payload.getBytes(UTF8);
+        final int length = 8 + 2 + name.length + payload.length;
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + length);
+        buffer.position(HEADER_BYTES);
+        buffer.putLong(record.timestamp);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.put(payload);
+        crc.reset();
+        crc.update(buffer.array(), HEADER_BYTES, length);
+        buffer.putInt(0, length);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.position(0);
+        return buffer;
+    }
+
+    private static Record decode(ByteBuffer body) {
+        final long timestamp = body.getLong();
+        final byte[] name = new byte[body.getShort() & 0xffff];
+        body.get(name);
+        final byte[] payload = new byte[body.remaining()];
+        body.get(payload);
+        return new Record(timestamp, new String(name, UTF8), new String(payload, UTF8));
+    }
+}
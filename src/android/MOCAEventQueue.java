@@ -0,0 +1,265 @@
+package com.innoquant.moca.phonegap;
+
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.innoquant.moca.utils.logger.MLog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded buffer of events waiting for their JavaScript callbacks.
+ *
+ * Events are linked twice: in arrival order, and per event name. Draining the events of a
+ * name or the expired head of the queue unlinks each event in O(1), and drained events are
+ * always returned in arrival order.
+ *
+ * When the queue is full, the overflow policy decides what happens to the incoming event:
+ * <ul>
+ * <li>DROP_OLDEST: the oldest event is evicted.</li>
+ * <li>COALESCE: the oldest event with the same name is replaced; action events are never
+ * coalesced and fall back to DROP_OLDEST.</li>
+ * <li>BLOCK: the producer waits for room, at most MAX_BLOCK_MS and never past the expiry of the
+ * oldest event, then falls back to DROP_OLDEST. The SDK raises most events on the main thread,
+ * where waiting risks an ANR, so producers on the main thread never wait and always fall back.</li>
+ * </ul>
+ * Evicted events are handed back to the caller, which handles them as if they had expired.
+ */
+class MOCAEventQueue {
+
+    enum OverflowPolicy {
+        DROP_OLDEST,
+        COALESCE,
+        BLOCK;
+
+        /**
+         * Parses a policy preference value such as "drop-oldest", "coalesce" or "block".
+         * Unknown or missing values default to DROP_OLDEST.
+         */
+        static OverflowPolicy fromString(String value) {
+            if (value != null) {
+                String name = value.trim().replace('-', '_').toUpperCase(Locale.US);
+                for (OverflowPolicy policy : values()) {
+                    if (policy.name().equals(name)) {
+                        return policy;
+                    }
+                }
+                MLog.w("Unknown event queue overflow policy '" + value + "'. Using drop-oldest.");
+            }
+            return DROP_OLDEST;
+        }
+    }
+
+    interface Selector {
+        /**
+         * @return true if the pending events with the given name can be delivered now.
+         */
+        boolean isReady(String eventName);
+    }
+
+    static final int DEFAULT_CAPACITY = 256;
+    static final long MAX_BLOCK_MS = 5;
+
+    private final Map<String, NameList> byName = new HashMap<String, NameList>();
+    private Node head;
+    private Node tail;
+    private int size;
+    private long sequence;
+    private int capacity;
+    private OverflowPolicy policy;
+
+    MOCAEventQueue(int capacity, OverflowPolicy policy) {
+        configure(capacity, policy);
+    }
+
+    synchronized void configure(int capacity, OverflowPolicy policy) {
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy != null ? policy : OverflowPolicy.DROP_OLDEST;
+        notifyAll();
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends an event to the queue.
+     *
+     * @return the event evicted to make room for it, or null.
+     */
+    synchronized MOCACordovaEvent offer(MOCACordovaEvent event) {
+        MOCACordovaEvent evicted = null;
+        if (size >= capacity) {
+            evicted = makeRoom(event);
+        }
+        link(new Node(event, sequence++));
+        return evicted;
+    }
+
+    private MOCACordovaEvent makeRoom(MOCACordovaEvent incoming) {
+        switch (policy) {
+            case COALESCE:
+                NameList list = byName.get(incoming.getEventName());
+                if (list != null && !list.head.event.hasAction()) {
+                    MOCACordovaEvent superseded = unlink(list.head);
+                    MLog.d("Event queue full. Coalescing \"" + superseded.getEventName() + "\" event");
+                    return null;
+                }
+                break;
+            case BLOCK:
+                if (Looper.myLooper() == Looper.getMainLooper()) {
+                    break;
+                }
+                final long deadline = SystemClock.elapsedRealtime() + MAX_BLOCK_MS;
+                while (size >= capacity && !head.event.isExpired()) {
+                    final long waitMs = Math.min(deadline - SystemClock.elapsedRealtime(),
+                            head.event.getRemainingTimeMs());
+                    if (waitMs <= 0) {
+                        break;
+                    }
+                    try {
+                        wait(waitMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                if (size < capacity) {
+                    return null;
+                }
+                break;
+            default:
+                break;
+        }
+        MLog.d("Event queue full. Evicting oldest \"" + head.event.getEventName() + "\" event");
+        return unlink(head);
+    }
+
+    /**
+     * Removes the events that can be delivered: the expired ones, and all the events whose name
+     * is accepted by the selector.
+     *
+     * @return the removed events, in arrival order.
+     */
+    synchronized List<MOCACordovaEvent> pollReady(Selector selector) {
+        List<MOCACordovaEvent> ready = new ArrayList<MOCACordovaEvent>();
+        if (size == 0) {
+            return ready;
+        }
+        List<NameList> readyLists = new ArrayList<NameList>();
+        for (Map.Entry<String, NameList> entry : byName.entrySet()) {
+            if (selector.isReady(entry.getKey())) {
+                readyLists.add(entry.getValue());
+            }
+        }
+        while (true) {
+            Node next = null;
+            if (head != null && head.event.isExpired()) {
+                next = head;
+            }
+            for (NameList list : readyLists) {
+                if (list.head != null && (next == null || list.head.seq < next.seq)) {
+                    next = list.head;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            ready.add(unlink(next));
+        }
+        if (!ready.isEmpty()) {
+            notifyAll();
+        }
+        return ready;
+    }
+
+    /**
+     * Removes every queued event.
+     *
+     * @return the removed events, in arrival order.
+     */
+    synchronized List<MOCACordovaEvent> drain() {
+        List<MOCACordovaEvent> drained = new ArrayList<MOCACordovaEvent>(size);
+        while (head != null) {
+            drained.add(unlink(head));
+        }
+        notifyAll();
+        return drained;
+    }
+
+    private void link(Node node) {
+        node.prev = tail;
+        if (tail != null) {
+            tail.next = node;
+        } else {
+            head = node;
+        }
+        tail = node;
+        String name = node.event.getEventName();
+        NameList list = byName.get(name);
+        if (list == null) {
+            list = new NameList();
+            byName.put(name, list);
+        }
+        if (list.tail != null) {
+            list.tail.nextSameName = node;
+        } else {
+            list.head = node;
+        }
+        list.tail = node;
+        size++;
+    }
+
+    /**
+     * Unlinks a node. Nodes are only removed from the head of their name list, since the oldest
+     * event of the queue, the oldest coalesced event and the drained events are all name heads.
+     */
+    private MOCACordovaEvent unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            head = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            tail = node.prev;
+        }
+        String name = node.event.getEventName();
+        NameList list = byName.get(name);
+        list.head = node.nextSameName;
+        if (list.head == null) {
+            list.tail = null;
+            byName.remove(name);
+        }
+        node.prev = node.next = node.nextSameName = null;
+        size--;
+        return node.event;
+    }
+
+    private static final class Node {
+        final MOCACordovaEvent event;
+        final long seq;
+        Node prev;
+        Node next;
+        Node nextSameName;
+
+        Node(MOCACordovaEvent event, long seq) {
+            this.event = event;
+            this.seq = seq;
+        }
+    }
+
+    private static final class NameList {
+        Node head;
+        Node tail;
+    }
+}
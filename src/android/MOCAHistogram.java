@@ -0,0 +1,63 @@
+package com.innoquant.moca.phonegap;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets. Percentiles are reported
+ * as the upper bound of their bucket, so they are accurate within a factor of two.
+ */
+class MOCAHistogram {
+
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalUs = new AtomicLong();
+    private final AtomicLong maxUs = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        final long us = Math.max(0, nanos / 1000);
+        final int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(us));
+        buckets.incrementAndGet(bucket);
+        totalUs.addAndGet(us);
+        long max = maxUs.get();
+        while (us > max && !maxUs.compareAndSet(max, us)) {
+            max = maxUs.get();
+        }
+    }
+
+    JSONObject toJSON() throws JSONException {
+        final long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        JSONObject json = new JSONObject();
+        json.put("count", total);
+        json.put("meanUs", total == 0 ? 0 : totalUs.get() / total);
+        json.put("p50Us", percentile(snapshot, total, 0.50));
+        json.put("p90Us", percentile(snapshot, total, 0.90));
+        json.put("p99Us", percentile(snapshot, total, 0.99));
+        json.put("maxUs", maxUs.get());
+        return json;
+    }
+
+    private static long percentile(long[] snapshot, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : (1L << i) - 1;
+            }
+        }
+        return (1L << (snapshot.length - 1)) - 1;
+    }
+}
@@ -0,0 +1,239 @@
+package com.innoquant.moca.phonegap;
+
+import org.json.JSONObject;
+
+/**
+ * Minimal streaming JSON encoder writing straight into a reusable buffer.
+ *
+ * Event payloads are encoded in a single pass, without building an org.json object tree,
+ * and the result is handed to Cordova as a pre-encoded message (see {@link MOCAEncodedPluginResult}).
+ * The writer does not validate the structure it produces; callers are expected to balance
+ * begin/end calls and to alternate names and values inside objects.
+ */
+class MOCAJsonWriter {
+
+    /**
+     * Payload able to encode itself.
+     */
+    interface Writable {
+        void writeTo(MOCAJsonWriter writer);
+    }
+
+    private static final int INITIAL_CAPACITY = 512;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<MOCAJsonWriter> writers = new ThreadLocal<MOCAJsonWriter>() {
+        @Override
+        protected MOCAJsonWriter initialValue() {
+            return new MOCAJsonWriter();
+        }
+    };
+
+    private StringBuilder out = new StringBuilder(INITIAL_CAPACITY);
+    private boolean needsComma;
+
+    /**
+     * @return the writer of the current thread, reset and ready to encode a new payload.
+     */
+    static MOCAJsonWriter obtain() {
+        MOCAJsonWriter writer = writers.get();
+        writer.reset();
+        return writer;
+    }
+
+    void reset() {
+        if (out.capacity() > MAX_RETAINED_CAPACITY) {
+            out = new StringBuilder(INITIAL_CAPACITY);
+        } else {
+            out.setLength(0);
+        }
+        needsComma = false;
+    }
+
+    int length() {
+        return out.length();
+    }
+
+    MOCAJsonWriter beginObject() {
+        separate();
+        out.append('{');
+        needsComma = false;
+        return this;
+    }
+
+    MOCAJsonWriter endObject() {
+        out.append('}');
+        needsComma = true;
+        return this;
+    }
+
+    MOCAJsonWriter beginArray() {
+        separate();
+        out.append('[');
+        needsComma = false;
+        return this;
+    }
+
+    MOCAJsonWriter endArray() {
+        out.append(']');
+        needsComma = true;
+        return this;
+    }
+
+    MOCAJsonWriter name(String name) {
+        separate();
+        quote(name);
+        out.append(':');
+        needsComma = false;
+        return this;
+    }
+
+    MOCAJsonWriter value(String value) {
+        separate();
+        if (value == null) {
+            out.append("null");
+        } else {
+            quote(value);
+        }
+        needsComma = true;
+        return this;
+    }
+
+    MOCAJsonWriter value(long value) {
+        separate();
+        out.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    MOCAJsonWriter value(double value) {
+        separate();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append("null");
+        } else if (value == (long) value) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        needsComma = true;
+        return this;
+    }
+
+    MOCAJsonWriter value(boolean value) {
+        separate();
+        out.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    MOCAJsonWriter nullValue() {
+        separate();
+        out.append("null");
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Appends an already encoded JSON value.
+     */
+    MOCAJsonWriter rawValue(String json) {
+        separate();
+        out.append(json);
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Appends already encoded object members ("name":value pairs, without braces).
+     */
+    MOCAJsonWriter rawMembers(String members) {
+        if (members.length() == 0) {
+            return this;
+        }
+        separate();
+        out.append(members);
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Appends an arbitrary value: strings, numbers, booleans, org.json objects and writables.
+     */
+    MOCAJsonWriter value(Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            return nullValue();
+        } else if (value instanceof String) {
+            return value((String) value);
+        } else if (value instanceof Boolean) {
+            return value(((Boolean) value).booleanValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            return value(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            return value(((Number) value).longValue());
+        } else if (value instanceof Writable) {
+            ((Writable) value).writeTo(this);
+            needsComma = true;
+            return this;
+        }
+        return rawValue(value.toString());
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void separate() {
+        if (needsComma) {
+            out.append(',');
+        }
+    }
+
+    private void quote(String s) {
+        final StringBuilder out = this.out;
+        out.append('"');
+        for (int i = 0, length = s.length(); i < length; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    out.append('\\').append(c);
+                    break;
+                case '/':
+                    if (i > 0 && s.charAt(i - 1) == '<') {
+                        out.append('\\');
+                    }
+                    out.append(c);
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.append("\\u");
+                        String hex = Integer.toHexString(c);
+                        for (int pad = hex.length(); pad < 4; pad++) {
+                            out.append('0');
+                        }
+                        out.append(hex);
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+        out.append('"');
+    }
+}
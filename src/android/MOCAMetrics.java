@@ -0,0 +1,194 @@
+package com.innoquant.moca.phonegap;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bridge and event delivery metrics. Disabled by default; callers check {@link #isEnabled()}
+ * before taking any timestamp, so a disabled instance costs one volatile read per call.
+ *
+ * <ul>
+ * <li>Per bridge action: calls, errors, lane queue wait and execution time.</li>
+ * <li>Per event: serialization time and delivery latency, from the SDK callback until the
+ * payload is handed to the WebView.</li>
+ * <li>Gauges: pending tasks per lane, event queue depth.</li>
+ * </ul>
+ */
+class MOCAMetrics {
+
+    private volatile boolean enabled;
+    private final ConcurrentMap<String, ActionStats> actions = new ConcurrentHashMap<String, ActionStats>();
+    private final ConcurrentMap<String, EventStats> events = new ConcurrentHashMap<String, EventStats>();
+    private final AtomicInteger[] lanePending = new AtomicInteger[MOCAPluginScheduler.Lane.values().length];
+    private final AtomicLong maxEventQueueDepth = new AtomicLong();
+
+    MOCAMetrics() {
+        for (int i = 0; i < lanePending.length; i++) {
+            lanePending[i] = new AtomicInteger();
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /* Bridge actions */
+
+    void actionQueued(MOCAPluginScheduler.Lane lane) {
+        lanePending[lane.ordinal()].incrementAndGet();
+    }
+
+    void actionStarted(MOCAPluginScheduler.Lane lane, String action, long queueWaitNanos) {
+        lanePending[lane.ordinal()].decrementAndGet();
+        actionStats(action).queueWait.recordNanos(queueWaitNanos);
+    }
+
+    void actionExecuted(String action, long execNanos) {
+        ActionStats stats = actionStats(action);
+        stats.calls.incrementAndGet();
+        stats.exec.recordNanos(execNanos);
+    }
+
+    void actionFailed(String action) {
+        actionStats(action).errors.incrementAndGet();
+    }
+
+    /**
+     * Wraps a callback context so that the error results sent through it are counted.
+     */
+    CallbackContext countErrors(String action, CallbackContext callbackContext, CordovaWebView webView) {
+        return new ErrorCountingCallbackContext(action, callbackContext, webView);
+    }
+
+    /* Event delivery */
+
+    void eventDelivered(String eventName, long serializeNanos, long deliverNanos) {
+        EventStats stats = events.get(eventName);
+        if (stats == null) {
+            EventStats created = new EventStats();
+            stats = events.putIfAbsent(eventName, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        stats.serialize.recordNanos(serializeNanos);
+        stats.deliver.recordNanos(deliverNanos);
+    }
+
+    void eventQueueDepth(int depth) {
+        long max = maxEventQueueDepth.get();
+        while (depth > max && !maxEventQueueDepth.compareAndSet(max, depth)) {
+            max = maxEventQueueDepth.get();
+        }
+    }
+
+    void reset() {
+        actions.clear();
+        events.clear();
+        maxEventQueueDepth.set(0);
+    }
+
+    /**
+     * @param eventQueueDepth current number of events in the startup queue
+     * @param coalescer source of the proximity coalescing counters
+     */
+    JSONObject toJSON(int eventQueueDepth, MOCAProximityCoalescer coalescer) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("enabled", enabled);
+        JSONObject actionsJson = new JSONObject();
+        for (Map.Entry<String, ActionStats> entry : actions.entrySet()) {
+            ActionStats stats = entry.getValue();
+            JSONObject actionJson = new JSONObject();
+            actionJson.put("calls", stats.calls.get());
+            actionJson.put("errors", stats.errors.get());
+            actionJson.put("queueWait", stats.queueWait.toJSON());
+            actionJson.put("exec", stats.exec.toJSON());
+            actionsJson.put(entry.getKey(), actionJson);
+        }
+        json.put("actions", actionsJson);
+        JSONObject eventsJson = new JSONObject();
+        for (Map.Entry<String, EventStats> entry : events.entrySet()) {
+            EventStats stats = entry.getValue();
+            JSONObject eventJson = new JSONObject();
+            eventJson.put("serialize", stats.serialize.toJSON());
+            eventJson.put("deliver", stats.deliver.toJSON());
+            eventsJson.put(entry.getKey(), eventJson);
+        }
+        json.put("events", eventsJson);
+        JSONObject gauges = new JSONObject();
+        JSONObject lanes = new JSONObject();
+        for (MOCAPluginScheduler.Lane lane : MOCAPluginScheduler.Lane.values()) {
+            lanes.put(lane.name().toLowerCase(), lanePending[lane.ordinal()].get());
+        }
+        gauges.put("lanePending", lanes);
+        gauges.put("eventQueueDepth", eventQueueDepth);
+        gauges.put("eventQueueMaxDepth", maxEventQueueDepth.get());
+        json.put("gauges", gauges);
+        JSONObject coalescing = new JSONObject();
+        coalescing.put("merged", coalescer.getMergedCount());
+        coalescing.put("suppressed", coalescer.getSuppressedCount());
+        json.put("proximityCoalescing", coalescing);
+        return json;
+    }
+
+    private ActionStats actionStats(String action) {
+        ActionStats stats = actions.get(action);
+        if (stats == null) {
+            ActionStats created = new ActionStats();
+            stats = actions.putIfAbsent(action, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    private static final class ActionStats {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final MOCAHistogram queueWait = new MOCAHistogram();
+        final MOCAHistogram exec = new MOCAHistogram();
+    }
+
+    private static final class EventStats {
+        final MOCAHistogram serialize = new MOCAHistogram();
+        final MOCAHistogram deliver = new MOCAHistogram();
+    }
+
+    private class ErrorCountingCallbackContext extends CallbackContext {
+        private final String action;
+        private final CallbackContext delegate;
+
+        ErrorCountingCallbackContext(String action, CallbackContext delegate, CordovaWebView webView) {
+            super(delegate.getCallbackId(), webView);
+            this.action = action;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public void sendPluginResult(PluginResult pluginResult) {
+            if (pluginResult.getStatus() == PluginResult.Status.ERROR.ordinal()) {
+                actionFailed(action);
+            }
+            delegate.sendPluginResult(pluginResult);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCABeacon;
+import com.innoquant.moca.MOCAPlace;
+import com.innoquant.moca.MOCAZone;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.msgpack.MessagePack;
+import org.msgpack.packer.BufferPacker;
+import org.msgpack.packer.MessagePackBufferPacker;
+import org.msgpack.packer.Packer;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes event payloads as MessagePack, for the binary event transport.
+ *
+ * The encoded payloads have exactly the same structure as their JSON counterparts, so that
+ * the JavaScript side only needs to decode them before invoking the application callbacks.
+ *
+ * As in Utils, the static members of a beacon, place or zone are packed once and kept by id;
+ * each event copies them verbatim and only packs the volatile members (proximity, timestamp).
+ * The packer checks the entry count of the maps and arrays it opens, and cannot see copied
+ * entries, so the maps and arrays that hold cached entries have their headers written
+ * directly and are not checked.
+ */
+class MOCAMsgPackEncoder {
+
+    private static final MessagePack msgpack = new MessagePack();
+
+    private static final int BEACON_STATIC_ENTRIES = 6;
+    private static final int PLACE_STATIC_ENTRIES = 4;
+    private static final int ZONE_STATIC_ENTRIES = 3;
+
+    private static final ConcurrentHashMap<String, byte[]> beaconCache = new ConcurrentHashMap<String, byte[]>();
+    private static final ConcurrentHashMap<String, byte[]> placeCache = new ConcurrentHashMap<String, byte[]>();
+    private static final ConcurrentHashMap<String, byte[]> zoneCache = new ConcurrentHashMap<String, byte[]>();
+
+    /**
+     * Buffer packer that can also copy packed bytes and write unchecked container headers.
+     */
+    private static final class FragmentPacker extends MessagePackBufferPacker {
+
+        FragmentPacker() {
+            super(MOCAMsgPackEncoder.msgpack);
+        }
+
+        void writeRaw(byte[] packed) throws IOException {
+            out.write(packed, 0, packed.length);
+        }
+
+        void writeMapHeader(int size) throws IOException {
+            if (size < 16) {
+                out.writeByte((byte) (0x80 | size));
+            } else if (size < 65536) {
+                out.writeByteAndShort((byte) 0xde, (short) size);
+            } else {
+                out.writeByteAndInt((byte) 0xdf, size);
+            }
+        }
+
+        void writeArrayHeader(int size) throws IOException {
+            if (size < 16) {
+                out.writeByte((byte) (0x90 | size));
+            } else if (size < 65536) {
+                out.writeByteAndShort((byte) 0xdc, (short) size);
+            } else {
+                out.writeByteAndInt((byte) 0xdd, size);
+            }
+        }
+    }
+
+    private static final ThreadLocal<FragmentPacker> packers = new ThreadLocal<FragmentPacker>() {
+        @Override
+        protected FragmentPacker initialValue() {
+            return new FragmentPacker();
+        }
+    };
+
+    private MOCAMsgPackEncoder() {
+    }
+
+    /**
+     * Clears the packed static members, along with Utils.invalidateSerializationCache.
+     */
+    static void invalidateCache() {
+        beaconCache.clear();
+        placeCache.clear();
+        zoneCache.clear();
+    }
+
+    /**
+     * @return the {"detail": payload} message of the event, MessagePack encoded.
+     */
+    static byte[] encodeEvent(String eventName, MOCACordovaEvent mocaEvent) throws IOException, JSONException {
+        FragmentPacker packer = packers.get();
+        packer.clear();
+        packer.writeMapHeader(1);
+        packer.write("detail");
+        writeEventData(packer, eventName, mocaEvent);
+        return packer.toByteArray();
+    }
+
+    private static void writeEventData(FragmentPacker packer, String eventName, MOCACordovaEvent mocaEvent) throws IOException, JSONException {
+        final Object data = mocaEvent.getData();
+        final long timestamp = mocaEvent.getTimestamp();
+        if (data instanceof MOCAZone) {
+            writeZone(packer, (MOCAZone) data, timestamp);
+        } else if (data instanceof MOCAPlace) {
+            writePlace(packer, (MOCAPlace) data, timestamp);
+        } else if (data instanceof MOCABeacon) {
+            writeBeacon(packer, (MOCABeacon) data, timestamp);
+        } else if (data instanceof MOCAProximityChange) {
+            writeProximityChange(packer, (MOCAProximityChange) data, timestamp);
+        } else if (data instanceof MOCABeaconsData) {
+            writeBeaconsData(packer, (MOCABeaconsData) data);
+        } else if (data instanceof MOCAJsonWriter.Writable) {
+            MOCAJsonWriter writer = new MOCAJsonWriter();
+            ((MOCAJsonWriter.Writable) data).writeTo(writer);
+            writeJson(packer, new JSONTokener(writer.toString()).nextValue());
+        } else if (data instanceof JSONObject) {
+            writeJson(packer, data);
+        } else if (data instanceof String || data instanceof JSONArray) {
+            packer.writeMapBegin(1);
+            packer.write(eventName);
+            writeJson(packer, data);
+            packer.writeMapEnd();
+        } else {
+            throw new JSONException("Cannot serialize data of type " + data.getClass().getName() + ", unsupported data type");
+        }
+    }
+
+    private static void writeBeacon(FragmentPacker packer, MOCABeacon beacon, long timestamp) throws IOException {
+        if (beacon == null) {
+            packer.writeNil();
+            return;
+        }
+        packer.writeMapHeader(BEACON_STATIC_ENTRIES + 2);
+        packer.writeRaw(staticBeaconFragment(beacon));
+        writeEntry(packer, "proximity", beacon.getProximity().toString());
+        packer.write("timestamp");
+        packer.write(timestamp);
+    }
+
+    private static void writePlace(FragmentPacker packer, MOCAPlace mocaPlace, long timestamp) throws IOException {
+        if (mocaPlace == null) {
+            packer.writeNil();
+            return;
+        }
+        packer.writeMapHeader(PLACE_STATIC_ENTRIES + 1);
+        packer.writeRaw(staticPlaceFragment(mocaPlace));
+        packer.write("timestamp");
+        packer.write(timestamp);
+    }
+
+    private static void writeZone(FragmentPacker packer, MOCAZone mocaZone, long timestamp) throws IOException {
+        if (mocaZone == null) {
+            packer.writeNil();
+            return;
+        }
+        packer.writeMapHeader(ZONE_STATIC_ENTRIES + 1);
+        packer.writeRaw(staticZoneFragment(mocaZone));
+        packer.write("timestamp");
+        packer.write(timestamp);
+    }
+
+    /**
+     * @return the packed type, id, uuid, major, minor and name entries of the beacon.
+     */
+    private static byte[] staticBeaconFragment(MOCABeacon beacon) throws IOException {
+        final String id = beacon.getId();
+        byte[] bkn = id != null ? beaconCache.get(id) : null;
+        if (bkn == null) {
+            BufferPacker packer = msgpack.createBufferPacker(128);
+            writeEntry(packer, "type", "beacon");
+            writeEntry(packer, "id", id);
+            writeEntry(packer, "uuid", beacon.getProximityUUID().toString());
+            packer.write("major");
+            packer.write(beacon.getMajor());
+            packer.write("minor");
+            packer.write(beacon.getMinor());
+            writeEntry(packer, "name", beacon.getName());
+            bkn = packer.toByteArray();
+            if (id != null) beaconCache.put(id, bkn);
+        }
+        return bkn;
+    }
+
+    /**
+     * @return the packed type, name, id and geofence entries of the place.
+     */
+    private static byte[] staticPlaceFragment(MOCAPlace mocaPlace) throws IOException {
+        final String id = mocaPlace.getId();
+        byte[] plc = id != null ? placeCache.get(id) : null;
+        if (plc == null) {
+            BufferPacker packer = msgpack.createBufferPacker(128);
+            writeEntry(packer, "type", "place");
+            writeEntry(packer, "name", mocaPlace.getName());
+            writeEntry(packer, "id", id);
+            packer.write("geofence");
+            packer.writeMapBegin(3);
+            packer.write("lat");
+            packer.write(mocaPlace.getGeoFence().getCenter().getLatitude());
+            packer.write("lon");
+            packer.write(mocaPlace.getGeoFence().getCenter().getLongitude());
+            packer.write("accuracy");
+            packer.write(mocaPlace.getGeoFence().getCenter().getAccuracy());
+            packer.writeMapEnd();
+            plc = packer.toByteArray();
+            if (id != null) placeCache.put(id, plc);
+        }
+        return plc;
+    }
+
+    /**
+     * @return the packed type, id and name entries of the zone.
+     */
+    private static byte[] staticZoneFragment(MOCAZone mocaZone) throws IOException {
+        final String id = mocaZone.getId();
+        byte[] zn = id != null ? zoneCache.get(id) : null;
+        if (zn == null) {
+            BufferPacker packer = msgpack.createBufferPacker(64);
+            writeEntry(packer, "type", "zone");
+            writeEntry(packer, "id", id);
+            writeEntry(packer, "name", mocaZone.getName());
+            zn = packer.toByteArray();
+            if (id != null) zoneCache.put(id, zn);
+        }
+        return zn;
+    }
+
+    private static void writeProximityChange(FragmentPacker packer, MOCAProximityChange change, long timestamp) throws IOException {
+        packer.writeMapHeader(change.merged > 0 ? 4 : 3);
+        packer.write("beacon");
+        writeBeacon(packer, change.beacon, timestamp);
+        writeEntry(packer, "prevProximity", change.prevProximity.toString());
+        writeEntry(packer, "curProximity", change.curProximity.toString());
+        if (change.merged > 0) {
+            packer.write("coalesced");
+            packer.write(change.merged);
+        }
+    }
+
+    private static void writeBeaconsData(FragmentPacker packer, MOCABeaconsData data) throws IOException {
+        packer.writeMapHeader(1);
+        packer.write(MOCABeaconsData.DELTA);
+        packer.writeMapHeader(6);
+        packer.write("version");
+        packer.write(data.version);
+        packer.write("baseVersion");
+        packer.write(data.baseVersion);
+        packer.write("full");
+        packer.write(data.full);
+        packer.write("added");
+        packer.writeArrayHeader(data.added.size());
+        for (MOCABeacon b : data.added) {
+            writeBeacon(packer, b, data.timestamp);
+        }
+        packer.write("changed");
+        packer.writeArrayHeader(data.changed.size());
+        for (MOCABeacon b : data.changed) {
+            writeBeacon(packer, b, data.timestamp);
+        }
+        packer.write("removed");
+        packer.writeArrayBegin(data.removed.size());
+        for (String id : data.removed) {
+            packer.write(id);
+        }
+        packer.writeArrayEnd();
+    }
+
+    private static void writeEntry(Packer packer, String name, String value) throws IOException {
+        packer.write(name);
+        if (value == null) {
+            packer.writeNil();
+        } else {
+            packer.write(value);
+        }
+    }
+
+    private static void writeJson(Packer packer, Object value) throws IOException, JSONException {
+        if (value == null || value == JSONObject.NULL) {
+            packer.writeNil();
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            packer.writeMapBegin(object.length());
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                packer.write(key);
+                writeJson(packer, object.get(key));
+            }
+            packer.writeMapEnd();
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            packer.writeArrayBegin(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                writeJson(packer, array.get(i));
+            }
+            packer.writeArrayEnd();
+        } else if (value instanceof Boolean) {
+            packer.write(((Boolean) value).booleanValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            packer.write(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            packer.write(((Number) value).longValue());
+        } else {
+            packer.write(value.toString());
+        }
+    }
+}
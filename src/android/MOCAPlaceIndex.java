@@ -0,0 +1,268 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCA;
+import com.innoquant.moca.MOCAPlace;
+import com.innoquant.moca.MOCAProximityService;
+import com.innoquant.moca.utils.logger.MLog;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Spatial index of the place geofences.
+ *
+ * Geofence centers are bucketed in a grid of CELL_DEG degrees, so a nearby query only visits
+ * the cells overlapping the query circle, grown by the largest geofence radius. The grid is
+ * immutable and rebuilt from the proximity service when it is older than REBUILD_INTERVAL_MS,
+ * when the registry is reloaded or when an unknown place is reported.
+ *
+ * Only the first grid is built by the querying thread. Later rebuilds run on a background
+ * thread, and queries keep using the previous grid until the new one is published.
+ */
+class MOCAPlaceIndex {
+
+    static final double CELL_DEG = 0.01;
+    static final long REBUILD_INTERVAL_MS = 5 * 60 * 1000;
+    private static final double EARTH_RADIUS_M = 6371000;
+    private static final double METERS_PER_DEG = Math.PI * EARTH_RADIUS_M / 180;
+
+    static final class Match {
+        final MOCAPlace place;
+        final double distance;
+
+        Match(MOCAPlace place, double distance) {
+            this.place = place;
+            this.distance = distance;
+        }
+    }
+
+    private static final Comparator<Match> BY_DISTANCE = new Comparator<Match>() {
+        @Override
+        public int compare(Match a, Match b) {
+            return Double.compare(a.distance, b.distance);
+        }
+    };
+
+    private volatile Grid grid;
+    private volatile boolean stale;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread thread = new Thread(r, "MOCAPlugin-places");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Schedules a rebuild if the entered place is not indexed yet.
+     */
+    void didEnterPlace(MOCAPlace place) {
+        final Grid current = grid;
+        if (current != null && place.getId() != null && !current.ids.contains(place.getId())) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Schedules a rebuild, e.g. when the registry is reloaded.
+     */
+    void invalidate() {
+        stale = true;
+        if (grid != null) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * @param radius search radius in meters
+     * @param limit  maximum number of places returned, 0 for no limit
+     * @return the places whose geofence overlaps the circle, nearest (by geofence center) first.
+     */
+    List<Match> placesNear(double lat, double lon, double radius, int limit) {
+        final Grid current = grid();
+        final List<Match> matches = new ArrayList<Match>();
+        if (current == null || current.size == 0) {
+            return matches;
+        }
+        final double reach = radius + current.maxRadius;
+        final double latSpan = reach / METERS_PER_DEG;
+        final double cosLat = Math.max(0.01, Math.cos(Math.toRadians(lat)));
+        final double lonSpan = Math.min(180, reach / (METERS_PER_DEG * cosLat));
+        final int minLat = cell(lat - latSpan);
+        final int maxLat = cell(lat + latSpan);
+        final int minLon = cell(lon - lonSpan);
+        final int maxLon = cell(lon + lonSpan);
+        if ((long) (maxLat - minLat + 1) * (maxLon - minLon + 1) > current.size
+                || lon - lonSpan < -180 || lon + lonSpan > 180) {
+            //the circle covers more cells than there are places, or crosses the antimeridian:
+            //a scan is cheaper
+            for (Entry[] entries : current.cells.values()) {
+                collect(entries, lat, lon, radius, matches);
+            }
+        } else {
+            for (int latCell = minLat; latCell <= maxLat; latCell++) {
+                for (int lonCell = minLon; lonCell <= maxLon; lonCell++) {
+                    Entry[] entries = current.cells.get(key(latCell, lonCell));
+                    if (entries != null) {
+                        collect(entries, lat, lon, radius, matches);
+                    }
+                }
+            }
+        }
+        Collections.sort(matches, BY_DISTANCE);
+        if (limit > 0 && matches.size() > limit) {
+            return new ArrayList<Match>(matches.subList(0, limit));
+        }
+        return matches;
+    }
+
+    private static void collect(Entry[] entries, double lat, double lon, double radius, List<Match> matches) {
+        for (Entry entry : entries) {
+            final double distance = distance(lat, lon, entry.lat, entry.lon);
+            if (distance - entry.radius <= radius) {
+                matches.add(new Match(entry.place, distance));
+            }
+        }
+    }
+
+    private Grid grid() {
+        Grid current = grid;
+        if (current == null) {
+            synchronized (this) {
+                current = grid;
+                if (current == null) {
+                    stale = false;
+                    current = build();
+                    grid = current;
+                }
+            }
+        } else if (stale || SystemClock.elapsedRealtime() - current.builtAt > REBUILD_INTERVAL_MS) {
+            scheduleRebuild();
+        }
+        return current;
+    }
+
+    /**
+     * Rebuilds the grid on the background thread, unless a rebuild is already running. A rebuild
+     * requested while another one runs is scheduled when it finishes.
+     */
+    private void scheduleRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        rebuildExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    stale = false;
+                    final Grid built = build();
+                    if (built != null) {
+                        grid = built;
+                    }
+                } catch (RuntimeException e) {
+                    MLog.e("Place index rebuild failed", e);
+                } finally {
+                    rebuilding.set(false);
+                }
+                if (stale) {
+                    scheduleRebuild();
+                }
+            }
+        });
+    }
+
+    private Grid build() {
+        final MOCAProximityService proxService = MOCA.initialized() ? MOCA.getProximityService() : null;
+        if (proxService == null) {
+            return grid;
+        }
+        final List<MOCAPlace> places = proxService.getPlaces();
+        final Grid built = new Grid();
+        final Map<Long, List<Entry>> cells = new HashMap<Long, List<Entry>>();
+        if (places != null) {
+            for (MOCAPlace place : places) {
+                if (place.getGeoFence() == null || place.getGeoFence().getCenter() == null) {
+                    continue;
+                }
+                final Entry entry = new Entry(place,
+                        place.getGeoFence().getCenter().getLatitude(),
+                        place.getGeoFence().getCenter().getLongitude(),
+                        Math.max(0, place.getGeoFence().getCenter().getAccuracy()));
+                final Long key = key(cell(entry.lat), cell(entry.lon));
+                List<Entry> cell = cells.get(key);
+                if (cell == null) {
+                    cell = new ArrayList<Entry>(2);
+                    cells.put(key, cell);
+                }
+                cell.add(entry);
+                if (place.getId() != null) {
+                    built.ids.add(place.getId());
+                }
+                built.maxRadius = Math.max(built.maxRadius, entry.radius);
+                built.size++;
+            }
+        }
+        for (Map.Entry<Long, List<Entry>> cell : cells.entrySet()) {
+            built.cells.put(cell.getKey(), cell.getValue().toArray(new Entry[cell.getValue().size()]));
+        }
+        built.builtAt = SystemClock.elapsedRealtime();
+        MLog.d("Place index built: " + built.size + " places in " + built.cells.size() + " cells");
+        return built;
+    }
+
+    private static int cell(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEG);
+    }
+
+    private static long key(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+
+    /**
+     * @return the great-circle distance in meters.
+     */
+    private static double distance(double lat1, double lon1, double lat2, double lon2) {
+        final double dLat = Math.toRadians(lat2 - lat1);
+        final double dLon = Math.toRadians(lon2 - lon1);
+        final double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static final class Grid {
+        final Map<Long, Entry[]> cells = new HashMap<Long, Entry[]>();
+        final Set<String> ids = new HashSet<String>();
+        double maxRadius;
+        int size;
+        long builtAt;
+    }
+
+    private static final class Entry {
+        final MOCAPlace place;
+        final double lat;
+        final double lon;
+        final double radius;
+
+        Entry(MOCAPlace place, double lat, double lon, double radius) {
+            this.place = place;
+            this.lat = lat;
+            this.lon = lon;
+            this.radius = radius;
+        }
+    }
+}
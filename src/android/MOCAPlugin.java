@@ -31,12 +31,9 @@ import com.innoquant.moca.MOCAConfig;
 import com.innoquant.moca.MOCAException;
 import com.innoquant.moca.MOCAInstance;
 import com.innoquant.moca.MOCALogLevel;
-import com.innoquant.moca.MOCAPlace;
-import com.innoquant.moca.MOCAProximityService;
-import com.innoquant.moca.MOCARegionState;
-import com.innoquant.moca.MOCATag;
 import com.innoquant.moca.MOCAUser;
 import com.innoquant.moca.core.User;
+import com.innoquant.moca.phonegap.MOCAPluginScheduler.Lane;
 import com.innoquant.moca.proximity.ProximityData;
 import com.innoquant.moca.utils.logger.MLog;
 
@@ -44,28 +41,321 @@ import org.apache.cordova.CallbackContext;
 import org.apache.cordova.CordovaInterface;
 import org.apache.cordova.CordovaPlugin;
 import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
-import static com.innoquant.moca.phonegap.MOCAAPI.knownActions;
 import static com.innoquant.moca.phonegap.MOCAAPI.knownCallbackActions;
+import static com.innoquant.moca.phonegap.MOCAAPI.streamingActions;
 
 /**
  * MOCA PhoneGap Plugin for Android SDK, v2+
  */
 public class MOCAPlugin extends CordovaPlugin {
 
+    /**
+     * Bridge action table, built once at class load. Maps every action name in {@link MOCAAPI}
+     * to its handler and scheduler lane so that dispatching a call costs a single hash lookup.
+     */
+    private static final Map<String, Registration> actions = new HashMap<String, Registration>();
+
+    static {
+        register(MOCAAPI.SET_LOG_LEVEL, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.setLogLevel(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.VERSION, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.version(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.APP_KEY, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.appKey(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.APP_SECRET, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.appSecret(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INIT, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.initialized(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.LOG_LEVEL, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.logLevel(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_SESSION, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_session(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_IDENTIFIER, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_identifier(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.PROXIMITY_ENABLED, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.proximityEnabled(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.SET_PROXIMITY_ENABLED, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.setProximityEnabled(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.SET_GEOTRACKING_ENABLED, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.setGeoTrackingEnabled(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_USER_LOGIN, Lane.USER, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_userLogin(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_USER_LOGGED_IN, Lane.USER, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_userLoggedIn(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_USER_LOGOUT, Lane.USER, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_userLogout(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_SET_CUSTOM_PROPERTIES, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_setCustomProperties(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_SET_CUSTOM_PROPERTY, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_setCustomProperty(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_CUSTOM_PROPERTY, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_customProperty(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.CUSTOM_PROPERTY, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_customProperty(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.BEACONS_IN_RANGE, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.beaconsInRange(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.ZONES_INSIDE, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.zonesInside(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.PROXIMITY_SNAPSHOT, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.proximitySnapshot(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.PLACES_NEAR, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.placesNear(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.PLACES_INSIDE, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.placesInside(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.PERFORM_FETCH, Lane.NETWORK, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.performFetch(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_ADD_TAG, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_add_tag(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_ADD_TAGS, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_add_tags(data, callbackContext, false);
+            }
+        });
+        register(MOCAAPI.INSTANCE_UPDATE_TAGS, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_add_tags(data, callbackContext, true);
+            }
+        });
+        register(MOCAAPI.INSTANCE_REMOVE_TAG, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_remove_tag(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_CONTAINS_TAG, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_contains_tag(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_GET_VALUE_FOR_TAG, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_get_value_for_tag(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.INSTANCE_GET_ALL_TAGS, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.instance_get_all_tags(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.CURRENT_INSTANCE, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.current_instance(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.USER_SET_CUSTOM_PROPERTIES, Lane.USER, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.user_setCustomProperties(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.USER_SET_CUSTOM_PROPERTY, Lane.USER, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.user_set_custom_property(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.USER_GET_CUSTOM_PROPERTY, Lane.USER, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.user_custom_property(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.USER_SAVE, Lane.USER, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.user_save(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.IS_USER_LOGGED_IN, Lane.USER, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.is_user_logged_in(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.CURRENT_USER, Lane.USER, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.current_user(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.RESYNC_BEACONS_DATA, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.resyncBeaconsData(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.READY, Lane.INSTANCE, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.ready(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.ACK, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.ack(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.REMOVE_LISTENER, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.removeListener(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.SUBSCRIPTION_STATS, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.subscriptionStats(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.EVENT_CHANNEL, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.eventChannel(data, callbackContext);
+            }
+        });
+        register(MOCAAPI.METRICS, Lane.READ, new MOCAPluginAction() {
+            @Override
+            public void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException {
+                plugin.metrics(data, callbackContext);
+            }
+        });
+    }
+
+    private static void register(String action, Lane lane, MOCAPluginAction handler) {
+        actions.put(action, new Registration(lane, handler));
+    }
+
+    private static final class Registration {
+        final Lane lane;
+        final MOCAPluginAction handler;
+
+        Registration(Lane lane, MOCAPluginAction handler) {
+            this.lane = lane;
+            this.handler = handler;
+        }
+    }
+
     private static MOCAPlugin instance;
-    private ExecutorService executorService = Executors.newFixedThreadPool(1);
+    private MOCAPluginScheduler scheduler;
+    private MOCAMetrics metrics;
 
     public MOCAPlugin() {
         instance = this;
@@ -75,6 +365,16 @@ public class MOCAPlugin extends CordovaPlugin {
     public void initialize(CordovaInterface cordova, CordovaWebView webView) {
         super.initialize(cordova, webView);
         MLog.i("Initializing MOCAPlugin");
+        scheduler = new MOCAPluginScheduler(
+                this.preferences.getInteger(MOCAConstants.READ_LANE_THREADS, MOCAPluginScheduler.DEFAULT_READ_THREADS),
+                this.preferences.getInteger(MOCAConstants.NETWORK_LANE_THREADS, MOCAPluginScheduler.DEFAULT_NETWORK_THREADS));
+        configureEventQueue();
+        configureProximityCoalescing();
+        configureEventTransport();
+        configureEventJournal();
+        configureMetrics();
+        configureUserSaver();
+        configureEventFrames();
         if (!MOCA.initialized()) {
             //MOCA Init after cordova plugin init
             final String appKey = this.preferences.getString(MOCAConstants.APP_KEY, null);
@@ -106,38 +406,207 @@ public class MOCAPlugin extends CordovaPlugin {
         }
     }
 
+    /**
+     * Applies the event queue preferences, and persists them so that they are also used
+     * when Android launches the application in the background.
+     */
+    private void configureEventQueue() {
+        final int capacity = this.preferences.getInteger(MOCAConstants.EVENT_QUEUE_CAPACITY, MOCAEventQueue.DEFAULT_CAPACITY);
+        final String overflowPolicy = this.preferences.getString(MOCAConstants.EVENT_QUEUE_OVERFLOW, null);
+        MOCASharedPrefs.persistEventQueueConfig(capacity, overflowPolicy, cordova.getActivity().getApplicationContext());
+        ((MOCApp) cordova.getActivity().getApplication()).configureEventQueue(capacity, overflowPolicy);
+    }
+
+    private void configureProximityCoalescing() {
+        final int windowMs = this.preferences.getInteger(MOCAConstants.PROXIMITY_COALESCE_MS, 0);
+        MOCASharedPrefs.persistProximityCoalesceWindow(windowMs, cordova.getActivity().getApplicationContext());
+        ((MOCApp) cordova.getActivity().getApplication()).setProximityCoalesceWindow(windowMs);
+    }
+
+    private void configureEventTransport() {
+        final String transport = this.preferences.getString(MOCAConstants.EVENT_TRANSPORT, null);
+        MOCASharedPrefs.persistEventTransport(transport, cordova.getActivity().getApplicationContext());
+        ((MOCApp) cordova.getActivity().getApplication()).setEventTransport(transport);
+    }
+
+    private void configureEventJournal() {
+        final boolean enabled = this.preferences.getBoolean(MOCAConstants.EVENT_JOURNAL, false);
+        final int maxKb = this.preferences.getInteger(MOCAConstants.EVENT_JOURNAL_MAX_KB,
+                MOCAEventJournal.DEFAULT_MAX_BYTES / 1024);
+        final int maxAgeSec = this.preferences.getInteger(MOCAConstants.EVENT_JOURNAL_MAX_AGE_S,
+                (int) (MOCAEventJournal.DEFAULT_MAX_AGE_MS / 1000));
+        MOCASharedPrefs.persistEventJournalConfig(enabled, maxKb, maxAgeSec, cordova.getActivity().getApplicationContext());
+        ((MOCApp) cordova.getActivity().getApplication()).configureEventJournal(enabled, maxKb, maxAgeSec);
+    }
+
+    private void configureMetrics() {
+        final boolean enabled = this.preferences.getBoolean(MOCAConstants.METRICS, false);
+        MOCASharedPrefs.persistMetricsEnabled(enabled, cordova.getActivity().getApplicationContext());
+        metrics = ((MOCApp) cordova.getActivity().getApplication()).getMetrics();
+        metrics.setEnabled(enabled);
+    }
+
+    private void configureUserSaver() {
+        final int windowMs = this.preferences.getInteger(MOCAConstants.USER_SAVE_WINDOW_MS, (int) MOCAUserSaver.DEFAULT_WINDOW_MS);
+        ((MOCApp) cordova.getActivity().getApplication()).getUserSaver().setWindowMs(windowMs);
+    }
+
+    private void configureEventFrames() {
+        final boolean enabled = this.preferences.getBoolean(MOCAConstants.EVENT_FRAMES, false);
+        final int frameMs = this.preferences.getInteger(MOCAConstants.EVENT_FRAME_MS, MOCAEventFramer.DEFAULT_FRAME_MS);
+        final int frameEvents = this.preferences.getInteger(MOCAConstants.EVENT_FRAME_EVENTS, MOCAEventFramer.DEFAULT_FRAME_EVENTS);
+        ((MOCApp) cordova.getActivity().getApplication()).getEventFramer().configure(enabled, frameMs, frameEvents);
+    }
+
+    @Override
+    public void onPause(boolean multitasking) {
+        super.onPause(multitasking);
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        app.getTagCache().flush();
+        app.getUserSaver().flush();
+        app.getEventFramer().flush();
+    }
+
     @Override
     public void onResume(boolean multitasking) {
         super.onResume(multitasking);
     }
 
+    @Override
+    public void onReset() {
+        super.onReset();
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        app.clearCallbackContexts();
+        app.rearmEventQueue();
+    }
+
+    @Override
+    public void onDestroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        super.onDestroy();
+    }
+
     @Override
     public boolean execute(final String action, final JSONArray data, final CallbackContext callbackContext) {
-        if (!knownActions.contains(action) && !knownCallbackActions.contains(action)) {
-            MLog.e("Invalid action: " + action);
-            return false;
+        if (MOCAAPI.BATCH.equals(action)) {
+            batch(data, callbackContext);
+            return true;
         }
-        if (knownCallbackActions.contains(action) && checkInited(callbackContext)) {
-            Application app = cordova.getActivity().getApplication();
-            ((MOCApp) app).addCallbackContext(action, new MOCACallbackContext(callbackContext, data));
+        final Registration registration = actions.get(action);
+        if (registration == null) {
+            if (!knownCallbackActions.contains(action)) {
+                MLog.e("Invalid action: " + action);
+                return false;
+            }
+            if (checkInited(callbackContext)) {
+                final MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+                final JSONObject options = listenerOptions(data);
+                final MOCAEventFilter filter;
+                final MOCADeliveryControl delivery;
+                try {
+                    filter = options != null ? MOCAEventFilter.compile(options) : null;
+                    delivery = MOCADeliveryControl.fromOptions(options, callbackContext, app.getTimerWheel());
+                } catch (IllegalArgumentException e) {
+                    callbackContext.error(e.getMessage());
+                    return true;
+                }
+                final int listenerId = options != null ? options.optInt("listenerId", -1) : -1;
+                app.addCallbackContext(action, new MOCACallbackContext(callbackContext, data, filter, delivery, listenerId));
+            }
             return true;
         }
-        executorService.execute(new Runnable() {
+        dispatch(action, registration, data, callbackContext);
+        return true;
+    }
+
+    /**
+     * @return the first object in the listener arguments, holding its filter and delivery options.
+     */
+    private static JSONObject listenerOptions(JSONArray data) {
+        for (int i = 0; data != null && i < data.length(); i++) {
+            JSONObject options = data.optJSONObject(i);
+            if (options != null) {
+                return options;
+            }
+        }
+        return null;
+    }
+
+    private void dispatch(final String action, final Registration registration,
+                          final JSONArray data, final CallbackContext callbackContext) {
+        final boolean timed = metrics.isEnabled();
+        final long queuedAt;
+        final CallbackContext ctx;
+        if (timed) {
+            metrics.actionQueued(registration.lane);
+            queuedAt = System.nanoTime();
+            ctx = metrics.countErrors(action, callbackContext, webView);
+        } else {
+            queuedAt = 0;
+            ctx = callbackContext;
+        }
+        scheduler.execute(registration.lane, new Runnable() {
             @Override
             public void run() {
+                final long startedAt = timed ? System.nanoTime() : 0;
+                if (timed) {
+                    metrics.actionStarted(registration.lane, action, startedAt - queuedAt);
+                }
                 try {
                     MLog.d("Plugin Execute: " + action);
-                    Method method = MOCAPlugin.class.getDeclaredMethod(action, JSONArray.class, CallbackContext.class);
-                    method.invoke(MOCAPlugin.this, data, callbackContext);
+                    registration.handler.execute(MOCAPlugin.this, data, ctx);
                 } catch (Exception e) {
                     MLog.e("Plugin execute failed", e);
+                    if (!ctx.isFinished()) {
+                        //counted as failed by the metrics callback context
+                        ctx.error(e.getMessage() != null ? e.getMessage() : e.toString());
+                    } else if (timed) {
+                        metrics.actionFailed(action);
+                    }
+                } finally {
+                    if (timed) {
+                        metrics.actionExecuted(action, System.nanoTime() - startedAt);
+                    }
                 }
             }
         });
-        return true;
     }
 
-    @SuppressWarnings("unused")
+    /**
+     * Executes several actions in a single bridge round-trip. Expects a JSON array of
+     * {action, args} entries; each entry runs in the lane of its action and the results
+     * are returned in one array, in request order. Listeners and other actions that keep
+     * their callback open cannot be batched, they are reported as failed entries.
+     */
+    private void batch(JSONArray data, CallbackContext callbackContext) {
+        final JSONArray calls = data.optJSONArray(0);
+        if (calls == null) {
+            callbackContext.error("Expected an array of {action, args} entries");
+            return;
+        }
+        final MOCABatch batch = new MOCABatch(callbackContext, webView, calls.length());
+        for (int i = 0; i < calls.length(); i++) {
+            final JSONObject call = calls.optJSONObject(i);
+            final String action = call != null ? call.optString("action", null) : null;
+            final Registration registration = action != null ? actions.get(action) : null;
+            if (action != null && (knownCallbackActions.contains(action) || streamingActions.contains(action))) {
+                batch.fail(i, action, "Action cannot be batched: " + action);
+                continue;
+            }
+            if (registration == null) {
+                batch.fail(i, action, "Invalid batch action: " + action);
+                continue;
+            }
+            JSONArray args = call.optJSONArray("args");
+            if (args == null) {
+                args = new JSONArray();
+            }
+            dispatch(action, registration, args, batch.entryContext(i, action));
+        }
+    }
+
     void version(JSONArray data, CallbackContext callbackContext) {
         final String version = MOCA.getVersion();
         callbackContext.success(version);
@@ -151,34 +620,29 @@ public class MOCAPlugin extends CordovaPlugin {
         return true;
     }
 
-    @SuppressWarnings("unused")
     void appKey(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         final String appKey = MOCA.getAppKey();
         callbackContext.success(appKey);
     }
 
-    @SuppressWarnings("unused")
     void appSecret(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         final String appSecret = MOCA.getAppSecret();
         callbackContext.success(appSecret);
     }
 
-    @SuppressWarnings("unused")
     void initialized(JSONArray data, CallbackContext callbackContext) {
         final boolean initialized = MOCA.initialized();
         callbackContext.success(initialized ? 1 : 0);
     }
 
-    @SuppressWarnings("unused")
     void logLevel(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         final MOCALogLevel level = MOCA.getLogLevel();
         callbackContext.success(level.ordinal());
     }
 
-    @SuppressWarnings("unused")
     void instance_session(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         final MOCAInstance instance = MOCA.getInstance();
@@ -190,7 +654,6 @@ public class MOCAPlugin extends CordovaPlugin {
         }
     }
 
-    @SuppressWarnings("unused")
     void instance_identifier(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         final MOCAInstance instance = MOCA.getInstance();
@@ -198,7 +661,6 @@ public class MOCAPlugin extends CordovaPlugin {
         else callbackContext.error("MOCA instance not available");
     }
 
-    @SuppressWarnings("unused")
     void setLogLevel(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         try {
@@ -214,25 +676,74 @@ public class MOCAPlugin extends CordovaPlugin {
         }
     }
 
-    @SuppressWarnings("unused")
     void instance_add_tag(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         try {
             if (data.length() != 2) {
                 throw new IllegalArgumentException("Add Tag: Incorrect number of arguments, " + "tag name and its value are required (e.g. addTag(\"buyer\", \"=1\"))");
             }
-            String tagName = data.getString(0);
-            String value = data.getString(1);
-            String[] args = this.getFormattedData(tagName, value);
-            MOCAInstance instance = MOCA.getInstance();
-            instance.addTag(args[0], args[1]);
+            String tagName = MOCATagOperation.checkTagName(data.getString(0));
+            MOCATagOperation operation = MOCATagOperation.parse(data.getString(1));
+            tagCache().addTag(tagName, operation);
             callbackContext.success();
         } catch (Exception e) {
             callbackContext.error("add a tag failed. Error: " + e.getMessage());
         }
     }
 
-    @SuppressWarnings("unused")
+    /**
+     * Applies a map of tag name to operation ("+n", "-n", "=n") in a single batch. Every entry
+     * is validated first: if any is invalid nothing is applied, and the error result maps each
+     * invalid tag to its error. Otherwise the result maps each tag to its new value.
+     *
+     * @param nullRemoves whether a null operation removes the tag (update), or counts as "+1" (add)
+     */
+    void instance_add_tags(JSONArray data, CallbackContext callbackContext, boolean nullRemoves) throws JSONException {
+        if (!checkInited(callbackContext)) return;
+        final JSONObject tags = data.optJSONObject(0);
+        if (tags == null) {
+            callbackContext.error("Expected an object of tag name to tag value (e.g. {\"buyer\": \"+1\"})");
+            return;
+        }
+        final Map<String, MOCATagOperation> operations = new LinkedHashMap<String, MOCATagOperation>(tags.length() * 2);
+        JSONObject errors = null;
+        final Iterator<String> names = tags.keys();
+        while (names.hasNext()) {
+            final String tagName = names.next();
+            final Object value = tags.opt(tagName);
+            try {
+                MOCATagOperation.checkTagName(tagName);
+                if (value == null || value == JSONObject.NULL) {
+                    operations.put(tagName, nullRemoves ? null : MOCATagOperation.INCREMENT_ONE);
+                } else {
+                    operations.put(tagName, MOCATagOperation.parse(value.toString()));
+                }
+            } catch (IllegalArgumentException e) {
+                if (errors == null) {
+                    errors = new JSONObject();
+                }
+                errors.put(tagName, e.getMessage());
+            }
+        }
+        if (errors != null) {
+            callbackContext.error(new JSONObject().put("errors", errors));
+            return;
+        }
+        final Map<String, Double> values = tagCache().apply(operations);
+        final MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+        writer.beginObject();
+        for (Map.Entry<String, Double> entry : values.entrySet()) {
+            writer.name(entry.getKey());
+            if (entry.getValue() == null) {
+                writer.nullValue();
+            } else {
+                writer.value(entry.getValue().doubleValue());
+            }
+        }
+        writer.endObject();
+        callbackContext.sendPluginResult(new MOCAEncodedPluginResult(PluginResult.Status.OK, writer.toString()));
+    }
+
     void instance_remove_tag(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) {
             return;
@@ -241,97 +752,70 @@ public class MOCAPlugin extends CordovaPlugin {
             if (data.length() != 1) {
                 throw new IllegalArgumentException("Incorrect number of arguments. TagName needed");
             }
-            String tagName = data.getString(0);
-            String[] args = this.getFormattedData(tagName, null);
-            MOCAInstance instance = MOCA.getInstance();
-            instance.removeTag(args[0]);
+            String tagName = MOCATagOperation.checkTagName(data.getString(0));
+            tagCache().removeTag(tagName);
             callbackContext.success();
         } catch (Exception e) {
             callbackContext.error("instance_remove_tag failed. Error: " + e.getMessage());
         }
     }
 
-    @SuppressWarnings("unused")
     void instance_contains_tag(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) {
             return;
         }
         try {
-            String tagName = data.getString(0);
-            String[] args = this.getFormattedData(tagName, null);
-            MOCAInstance instance = MOCA.getInstance();
-            boolean isTagContained = instance.containsTag(args[0]);
+            String tagName = MOCATagOperation.checkTagName(data.getString(0));
+            boolean isTagContained = tagCache().contains(tagName);
             callbackContext.success(isTagContained ? 1 : 0);
         } catch (Exception e) {
             callbackContext.error("instance_contains_tag failed. Error: " + e.getMessage());
         }
     }
 
-    @SuppressWarnings("unused")
     void instance_get_value_for_tag(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) {
             return;
         }
         try {
-            String tagName = data.getString(0);
-            String[] args = this.getFormattedData(tagName, null);
-            MOCAInstance instance = MOCA.getInstance();
-            Double value = instance.getTagValue(args[0]);
+            String tagName = MOCATagOperation.checkTagName(data.getString(0));
+            Double value = tagCache().getValue(tagName);
+            if (value == null) {
+                callbackContext.error("instance_get_value_for_tag failed. Tag not found: " + tagName);
+                return;
+            }
             callbackContext.success(value.intValue());
         } catch (Exception e) {
             callbackContext.error("instance_get_value_for_tag failed. Error: " + e.getMessage());
         }
     }
 
-    @SuppressWarnings("unused")
     void instance_get_all_tags(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) {
             return;
         }
         try {
-            String tagName = data.getString(0);
-            String[] args = this.getFormattedData(tagName, null);
-            MOCAInstance instance = MOCA.getInstance();
-            Set<MOCATag> tags = instance.getTags();
-            JSONObject tagsJson = new JSONObject();
-            for (MOCATag tag : tags) {
-                tagsJson.put(tag.getName(), tag.getValue());
-            }
-            callbackContext.success(tagsJson);
+            callbackContext.sendPluginResult(
+                    new MOCAEncodedPluginResult(PluginResult.Status.OK, tagCache().getAllTagsJson()));
         } catch (Exception e) {
             callbackContext.error("instance_get_all_tags failed. Error: " + e.getMessage());
         }
     }
 
-    private String[] getFormattedData(String tagName, String value) throws IllegalArgumentException {
-        if (tagName == null || "".equals(tagName)) {
-            throw new IllegalArgumentException("Tag name is null or empty!");
-        }
-        String[] args = new String[2];
-        args[0] = tagName;
-        String formattedValue;
-        if (value == null || "null".equals(value)) {
-            formattedValue = "+1";
-        } else {
-            String pattern = "^[+-=][0-9]+$";
-            if (value.matches(pattern)) {
-                formattedValue = value;
-            } else {
-                throw new IllegalArgumentException("Tag value not valid. Should be, for instance, '+1' '-2' '=3'." + " Found " + value);
-            }
-        }
-        args[1] = formattedValue;
-        return args;
+    private MOCATagCache tagCache() {
+        return ((MOCApp) cordova.getActivity().getApplication()).getTagCache();
+    }
+
+    private MOCAUserSaver userSaver() {
+        return ((MOCApp) cordova.getActivity().getApplication()).getUserSaver();
     }
 
-    @SuppressWarnings("unused")
     void proximityEnabled(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         final boolean enabled = MOCA.proximityEnabled();
         callbackContext.success(enabled ? 1 : 0);
     }
 
-    @SuppressWarnings("unused")
     void setProximityEnabled(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         try {
@@ -348,7 +832,6 @@ public class MOCAPlugin extends CordovaPlugin {
         }
     }
 
-    @SuppressWarnings("unused")
     void setGeoTrackingEnabled(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         try {
@@ -365,7 +848,6 @@ public class MOCAPlugin extends CordovaPlugin {
         }
     }
 
-    @SuppressWarnings("unused")
     void instance_userLoggedIn(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         final MOCAInstance instance = MOCA.getInstance();
@@ -377,7 +859,6 @@ public class MOCAPlugin extends CordovaPlugin {
         callbackContext.error("MOCA instance not available");
     }
 
-    @SuppressWarnings("unused")
     void instance_userLogin(JSONArray data, final CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         try {
@@ -398,7 +879,7 @@ public class MOCAPlugin extends CordovaPlugin {
                     callbackContext.error("User creation failed!");
                     return;
                 }
-                user.save(new MOCACallback<MOCAUser>() {
+                userSaver().save(user, new MOCACallback<MOCAUser>() {
                     @Override
                     public void success(MOCAUser mocaUser) {
                         callbackContext.success();
@@ -417,7 +898,6 @@ public class MOCAPlugin extends CordovaPlugin {
         }
     }
 
-    @SuppressWarnings("unused")
     void instance_userLogout(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         try {
@@ -425,6 +905,7 @@ public class MOCAPlugin extends CordovaPlugin {
             if (instance != null) {
                 MOCAUser user = instance.getUser();
                 if (user != null) {
+                    userSaver().flush();
                     user.logout();
                 }
                 callbackContext.success();
@@ -436,7 +917,29 @@ public class MOCAPlugin extends CordovaPlugin {
         }
     }
 
-    @SuppressWarnings("unused")
+    /**
+     * Sets every key of a JSON object as an instance property.
+     */
+    void instance_setCustomProperties(JSONArray data, CallbackContext callbackContext) throws JSONException {
+        if (!checkInited(callbackContext)) return;
+        final JSONObject properties = data.optJSONObject(0);
+        if (properties == null) {
+            callbackContext.error("Expected an object of property keys to values");
+            return;
+        }
+        final MOCAInstance instance = MOCA.getInstance();
+        if (instance == null) {
+            callbackContext.error("MOCA instance not available");
+            return;
+        }
+        final Iterator<String> keys = properties.keys();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            instance.setProperty(key, properties.get(key));
+        }
+        callbackContext.success();
+    }
+
     void instance_setCustomProperty(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         try {
@@ -462,7 +965,6 @@ public class MOCAPlugin extends CordovaPlugin {
         }
     }
 
-    @SuppressWarnings("unused")
     void instance_customProperty(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         try {
@@ -492,7 +994,6 @@ public class MOCAPlugin extends CordovaPlugin {
         }
     }
 
-    @SuppressWarnings("unused")
     void current_instance(JSONArray data, CallbackContext callbackContext) throws JSONException {
         if (!checkInited(callbackContext)) return;
         MOCAInstance mocaInstance = MOCA.getInstance();
@@ -501,7 +1002,6 @@ public class MOCAPlugin extends CordovaPlugin {
         callbackContext.success(instanceObj);
     }
 
-    @SuppressWarnings("unused")
     void current_user(JSONArray data, CallbackContext callbackContext) throws JSONException {
         if (!checkInited(callbackContext)) return;
         MOCAInstance mocaInstance = MOCA.getInstance();
@@ -517,7 +1017,6 @@ public class MOCAPlugin extends CordovaPlugin {
         callbackContext.success(user.serializeAsJson());
     }
 
-    @SuppressWarnings("unused")
     void user_save(JSONArray data, final CallbackContext callbackContext) throws JSONException {
         if (!checkInited(callbackContext)) return;
         MOCAUser user = MOCA.getInstance().getUser();
@@ -526,7 +1025,48 @@ public class MOCAPlugin extends CordovaPlugin {
                     "please report the error to support@mocaplatform.com");
             return;
         }
-        user.save(new MOCACallback<MOCAUser>() {
+        userSaver().save(user, new MOCACallback<MOCAUser>() {
+            @Override
+            public void success(MOCAUser mocaUser) {
+                callbackContext.success();
+            }
+
+            @Override
+            public void failure(MOCAException e) {
+                callbackContext.error(e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Sets every key of a JSON object as a user property, then saves the user once
+     * if the second argument is true.
+     */
+    void user_setCustomProperties(JSONArray data, final CallbackContext callbackContext) throws JSONException {
+        if (!checkInited(callbackContext)) return;
+        final JSONObject properties = data.optJSONObject(0);
+        if (properties == null) {
+            callbackContext.error("Expected an object of property keys to values");
+            return;
+        }
+        MOCAUser user = MOCA.getInstance().getUser();
+        if (user == null) {
+            String error = "Something went wrong. SDK returned a null User, please file " +
+                    "an report to support@mocaplatform.com";
+            MLog.e(error);
+            callbackContext.error(error);
+            return;
+        }
+        final Iterator<String> keys = properties.keys();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            user.setProperty(key, properties.get(key));
+        }
+        if (!data.optBoolean(1, false)) {
+            callbackContext.success();
+            return;
+        }
+        userSaver().save(user, new MOCACallback<MOCAUser>() {
             @Override
             public void success(MOCAUser mocaUser) {
                 callbackContext.success();
@@ -539,7 +1079,6 @@ public class MOCAPlugin extends CordovaPlugin {
         });
     }
 
-    @SuppressWarnings("unused")
     void user_set_custom_property(JSONArray data, CallbackContext callbackContext) throws JSONException {
         if (!checkInited(callbackContext)) return;
         try {
@@ -568,7 +1107,6 @@ public class MOCAPlugin extends CordovaPlugin {
         }
     }
 
-    @SuppressWarnings("unused")
     void user_custom_property(JSONArray data, CallbackContext callbackContext) throws JSONException {
         if (!checkInited(callbackContext)) return;
         try {
@@ -599,7 +1137,6 @@ public class MOCAPlugin extends CordovaPlugin {
         }
     }
 
-    @SuppressWarnings("unused")
     void is_user_logged_in(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
         MOCAUser user = MOCA.getInstance().getUser();
@@ -610,27 +1147,123 @@ public class MOCAPlugin extends CordovaPlugin {
         callbackContext.success(0);
     }
 
-    @SuppressWarnings("unused")
     void placesInside(JSONArray data, CallbackContext callbackContext) {
         if (!checkInited(callbackContext)) return;
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        final long timestamp = System.currentTimeMillis();
+        MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+        app.getProximityState().writePlacesInside(writer, timestamp);
+        callbackContext.sendPluginResult(new MOCAEncodedPluginResult(PluginResult.Status.OK, writer.toString()));
+    }
+
+    void beaconsInRange(JSONArray data, CallbackContext callbackContext) {
+        if (!checkInited(callbackContext)) return;
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+        app.getProximityState().writeBeaconsInRange(writer, System.currentTimeMillis());
+        callbackContext.sendPluginResult(new MOCAEncodedPluginResult(PluginResult.Status.OK, writer.toString()));
+    }
+
+    void zonesInside(JSONArray data, CallbackContext callbackContext) {
+        if (!checkInited(callbackContext)) return;
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+        app.getProximityState().writeZonesInside(writer, System.currentTimeMillis());
+        callbackContext.sendPluginResult(new MOCAEncodedPluginResult(PluginResult.Status.OK, writer.toString()));
+    }
 
-        MOCAProximityService proxService = MOCA.getProximityService();
-        if (proxService == null) {
-            callbackContext.error("MOCA Proximity Service is not available.");
+    /**
+     * Returns the beacons in range, and the zones and places inside, with the state version.
+     * When the first argument is the current version, returns {version, notModified: true}.
+     */
+    void proximitySnapshot(JSONArray data, CallbackContext callbackContext) {
+        if (!checkInited(callbackContext)) return;
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        final String json = app.getProximityState().snapshotJson(data.optLong(0, 0));
+        callbackContext.sendPluginResult(new MOCAEncodedPluginResult(PluginResult.Status.OK, json));
+    }
+
+    /**
+     * Returns the places whose geofence overlaps a circle, nearest first, each with its
+     * distance in meters. Expects latitude, longitude, radius in meters and an optional limit.
+     */
+    void placesNear(JSONArray data, CallbackContext callbackContext) throws JSONException {
+        if (!checkInited(callbackContext)) return;
+        if (data.length() < 3) {
+            callbackContext.error("Expected latitude, longitude and radius arguments");
             return;
         }
-        List<MOCAPlace> places = proxService.getPlaces();
-        JSONArray arr = new JSONArray();
-        for (MOCAPlace p : places) {
-            if (p.getState() == MOCARegionState.Inside) {
-                try {
-                    arr.put(Utils.placeToJSON(p));
-                } catch (JSONException e) {
-                    callbackContext.error("Cannot get places inside");
-                }
-            }
+        final double lat = data.getDouble(0);
+        final double lon = data.getDouble(1);
+        final double radius = data.getDouble(2);
+        final int limit = data.optInt(3, 0);
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        final long timestamp = System.currentTimeMillis();
+        MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+        writer.beginArray();
+        for (MOCAPlaceIndex.Match match : app.getPlaceIndex().placesNear(lat, lon, radius, limit)) {
+            writer.beginObject()
+                    .rawMembers(Utils.staticPlaceFragment(match.place))
+                    .name("distance").value(match.distance)
+                    .name("timestamp").value(timestamp)
+                    .endObject();
         }
-        callbackContext.success(arr);
+        writer.endArray();
+        callbackContext.sendPluginResult(new MOCAEncodedPluginResult(PluginResult.Status.OK, writer.toString()));
+    }
+
+    void resyncBeaconsData(JSONArray data, CallbackContext callbackContext) {
+        if (!checkInited(callbackContext)) return;
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        callbackContext.success(app.resyncBeaconsData() ? 1 : 0);
+    }
+
+    void ready(JSONArray data, CallbackContext callbackContext) throws JSONException {
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        callbackContext.success(app.markJavaScriptReady());
+    }
+
+    /**
+     * Registers the callback that receives event frames (moca_event_frames preference).
+     */
+    void eventChannel(JSONArray data, CallbackContext callbackContext) {
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        app.getEventFramer().setChannel(callbackContext);
+    }
+
+    /**
+     * Acknowledges events delivered to a subscription with an ack window.
+     * Expects the subscription id and the number of events handled.
+     */
+    void ack(JSONArray data, CallbackContext callbackContext) throws JSONException {
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        if (app.ackSubscription(data.getString(0), data.optInt(1, 1))) {
+            callbackContext.success();
+        } else {
+            callbackContext.error("Unknown subscription: " + data.getString(0));
+        }
+    }
+
+    /**
+     * Removes an event or action listener. Expects the event name and the listener id.
+     */
+    void removeListener(JSONArray data, CallbackContext callbackContext) throws JSONException {
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        app.removeCallbackContext(data.getString(0), data.getInt(1), callbackContext);
+    }
+
+    void subscriptionStats(JSONArray data, CallbackContext callbackContext) throws JSONException {
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        callbackContext.success(app.subscriptionStats());
+    }
+
+    /**
+     * Returns the bridge and event delivery metrics. Resets them afterwards when the first
+     * argument is true.
+     */
+    void metrics(JSONArray data, CallbackContext callbackContext) throws JSONException {
+        MOCApp app = (MOCApp) cordova.getActivity().getApplication();
+        callbackContext.success(app.metricsSnapshot(data.optBoolean(0, false)));
     }
 
     void performFetch(JSONArray data, final CallbackContext callbackContext) {
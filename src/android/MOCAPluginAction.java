@@ -0,0 +1,13 @@
+package com.innoquant.moca.phonegap;
+
+import org.apache.cordova.CallbackContext;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * Handler of a single bridge action. Handlers are stateless and registered once
+ * in the {@link MOCAPlugin} action table, keyed by action name.
+ */
+interface MOCAPluginAction {
+    void execute(MOCAPlugin plugin, JSONArray data, CallbackContext callbackContext) throws JSONException;
+}
@@ -0,0 +1,87 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.utils.logger.MLog;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs bridge actions in lanes so that cheap getters never wait behind mutations or network I/O.
+ *
+ * <ul>
+ * <li>READ: read-only getters of SDK and plugin state, served by a small thread pool.</li>
+ * <li>INSTANCE / USER: calls on the instance (tags, properties) or on the user, reads included,
+ * serialized per entity so that a read always observes the writes issued before it.</li>
+ * <li>NETWORK: long, network-bound calls.</li>
+ * </ul>
+ *
+ * READ actions are not ordered with respect to anything else, and must not read state that
+ * INSTANCE or USER actions write.
+ */
+class MOCAPluginScheduler {
+
+    enum Lane {
+        READ,
+        INSTANCE,
+        USER,
+        NETWORK
+    }
+
+    static final int DEFAULT_READ_THREADS = 2;
+    static final int DEFAULT_NETWORK_THREADS = 1;
+
+    private final ExecutorService readLane;
+    private final ExecutorService instanceLane;
+    private final ExecutorService userLane;
+    private final ExecutorService networkLane;
+
+    MOCAPluginScheduler(int readThreads, int networkThreads) {
+        readLane = Executors.newFixedThreadPool(Math.max(1, readThreads), new LaneThreadFactory("read"));
+        instanceLane = Executors.newSingleThreadExecutor(new LaneThreadFactory("instance"));
+        userLane = Executors.newSingleThreadExecutor(new LaneThreadFactory("user"));
+        networkLane = Executors.newFixedThreadPool(Math.max(1, networkThreads), new LaneThreadFactory("network"));
+        MLog.d("MOCAPluginScheduler lanes: read=" + Math.max(1, readThreads) + ", network=" + Math.max(1, networkThreads));
+    }
+
+    void execute(Lane lane, Runnable task) {
+        switch (lane) {
+            case READ:
+                readLane.execute(task);
+                break;
+            case INSTANCE:
+                instanceLane.execute(task);
+                break;
+            case USER:
+                userLane.execute(task);
+                break;
+            case NETWORK:
+                networkLane.execute(task);
+                break;
+        }
+    }
+
+    void shutdown() {
+        readLane.shutdown();
+        instanceLane.shutdown();
+        userLane.shutdown();
+        networkLane.shutdown();
+    }
+
+    private static class LaneThreadFactory implements ThreadFactory {
+        private final String lane;
+        private final AtomicInteger count = new AtomicInteger();
+
+        LaneThreadFactory(String lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "MOCAPlugin-" + lane + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCABeacon;
+import com.innoquant.moca.MOCAProximity;
+
+/**
+ * Payload of a beacon proximity change event.
+ */
+class MOCAProximityChange {
+    final MOCABeacon beacon;
+    final MOCAProximity prevProximity;
+    final MOCAProximity curProximity;
+    final int merged;
+
+    MOCAProximityChange(MOCABeacon beacon, MOCAProximity prevProximity, MOCAProximity curProximity, int merged) {
+        this.beacon = beacon;
+        this.prevProximity = prevProximity;
+        this.curProximity = curProximity;
+        this.merged = merged;
+    }
+
+    void writeTo(MOCAJsonWriter writer, long timestamp) {
+        writer.beginObject().name("beacon");
+        Utils.writeBeacon(writer, beacon, timestamp);
+        writer.name("prevProximity").value(prevProximity.toString())
+                .name("curProximity").value(curProximity.toString());
+        if (merged > 0) {
+            writer.name("coalesced").value(merged);
+        }
+        writer.endObject();
+    }
+}
@@ -0,0 +1,133 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCABeacon;
+import com.innoquant.moca.MOCAProximity;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces beacon proximity changes per beacon.
+ *
+ * The first change of a beacon opens a window; changes received within the window are merged
+ * into a single one carrying the earliest previous proximity and the latest current proximity.
+ * Merged changes that end in the proximity they started from are not delivered at all.
+ * A window of 0 ms disables coalescing. {@link #flush(MOCABeacon)} closes the window of a beacon
+ * early, e.g. before its exit event, so that no change is delivered after it.
+ */
+class MOCAProximityCoalescer {
+
+    interface Sink {
+        void deliver(MOCABeacon beacon, MOCAProximity prevProximity, MOCAProximity curProximity, int merged);
+    }
+
+    private final MOCATimerWheel timerWheel;
+    private final Sink sink;
+    private final Map<String, PendingChange> pending = new HashMap<String, PendingChange>();
+    private final AtomicLong mergedCount = new AtomicLong();
+    private final AtomicLong suppressedCount = new AtomicLong();
+    private volatile long windowMs;
+
+    MOCAProximityCoalescer(MOCATimerWheel timerWheel, Sink sink) {
+        this.timerWheel = timerWheel;
+        this.sink = sink;
+    }
+
+    void setWindowMs(long windowMs) {
+        this.windowMs = Math.max(0, windowMs);
+    }
+
+    /**
+     * @return number of proximity changes merged into a later one.
+     */
+    long getMergedCount() {
+        return mergedCount.get();
+    }
+
+    /**
+     * @return number of coalesced changes dropped because the beacon ended in its previous proximity.
+     */
+    long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+
+    void resetCounts() {
+        mergedCount.set(0);
+        suppressedCount.set(0);
+    }
+
+    void offer(MOCABeacon beacon, MOCAProximity prevProximity, MOCAProximity curProximity) {
+        final long window = windowMs;
+        if (window <= 0) {
+            sink.deliver(beacon, prevProximity, curProximity, 0);
+            return;
+        }
+        final String beaconId = beacon.getId();
+        synchronized (pending) {
+            PendingChange change = pending.get(beaconId);
+            if (change != null) {
+                change.beacon = beacon;
+                change.curProximity = curProximity;
+                change.merged++;
+                mergedCount.incrementAndGet();
+                return;
+            }
+            final PendingChange opened = new PendingChange(beacon, prevProximity, curProximity);
+            pending.put(beaconId, opened);
+            opened.timeout = timerWheel.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    close(beaconId, opened);
+                }
+            }, window);
+        }
+    }
+
+    /**
+     * Delivers the pending change of a beacon, if any, without waiting for its window to end.
+     */
+    void flush(MOCABeacon beacon) {
+        final PendingChange change;
+        synchronized (pending) {
+            change = pending.remove(beacon.getId());
+        }
+        if (change != null) {
+            change.timeout.cancel();
+            deliver(change);
+        }
+    }
+
+    private void close(String beaconId, PendingChange change) {
+        synchronized (pending) {
+            if (pending.get(beaconId) != change) {
+                //already flushed
+                return;
+            }
+            pending.remove(beaconId);
+        }
+        deliver(change);
+    }
+
+    private void deliver(PendingChange change) {
+        if (change.merged > 0 && change.prevProximity == change.curProximity) {
+            suppressedCount.incrementAndGet();
+            return;
+        }
+        sink.deliver(change.beacon, change.prevProximity, change.curProximity, change.merged);
+    }
+
+    private static final class PendingChange {
+        MOCABeacon beacon;
+        final MOCAProximity prevProximity;
+        MOCAProximity curProximity;
+        int merged;
+        MOCATimerWheel.Timeout timeout;
+
+        PendingChange(MOCABeacon beacon, MOCAProximity prevProximity, MOCAProximity curProximity) {
+            this.beacon = beacon;
+            this.prevProximity = prevProximity;
+            this.curProximity = curProximity;
+        }
+    }
+}
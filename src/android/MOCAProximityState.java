@@ -0,0 +1,203 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCA;
+import com.innoquant.moca.MOCABeacon;
+import com.innoquant.moca.MOCAPlace;
+import com.innoquant.moca.MOCAProximity;
+import com.innoquant.moca.MOCAProximityService;
+import com.innoquant.moca.MOCARegionState;
+import com.innoquant.moca.MOCAZone;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live proximity state: the beacons in range with their proximity, and the zones and places
+ * the device is inside. Fed from the SDK listener callbacks, so reads cost O(k) in the number
+ * of entries returned and never query the SDK.
+ *
+ * Every change bumps the state version. Snapshots are encoded once per version, and a poller
+ * that already has the current version gets a small "not modified" answer. The version is
+ * read before the state, so a snapshot may include changes newer than its version, but never
+ * misses one.
+ */
+class MOCAProximityState {
+
+    private static final class BeaconEntry {
+        final MOCABeacon beacon;
+        final MOCAProximity proximity;
+
+        BeaconEntry(MOCABeacon beacon, MOCAProximity proximity) {
+            this.beacon = beacon;
+            this.proximity = proximity;
+        }
+    }
+
+    private static final class Snapshot {
+        final long version;
+        final String json;
+
+        Snapshot(long version, String json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+
+    private final Map<String, BeaconEntry> beacons = new ConcurrentHashMap<String, BeaconEntry>();
+    private final Map<String, MOCAZone> zones = new ConcurrentHashMap<String, MOCAZone>();
+    private final Map<String, MOCAPlace> places = new ConcurrentHashMap<String, MOCAPlace>();
+    private final AtomicLong version = new AtomicLong(1);
+    private volatile boolean placesSeeded;
+    private volatile Snapshot snapshot;
+
+    /* Listener callbacks */
+
+    void didEnterRange(MOCABeacon beacon, MOCAProximity proximity) {
+        if (beacon.getId() != null) {
+            beacons.put(beacon.getId(), new BeaconEntry(beacon, proximity));
+            version.incrementAndGet();
+        }
+    }
+
+    void didExitRange(MOCABeacon beacon) {
+        if (beacon.getId() != null && beacons.remove(beacon.getId()) != null) {
+            version.incrementAndGet();
+        }
+    }
+
+    void didBeaconProximityChange(MOCABeacon beacon, MOCAProximity proximity) {
+        didEnterRange(beacon, proximity);
+    }
+
+    void didEnterZone(MOCAZone zone) {
+        if (zone.getId() != null) {
+            zones.put(zone.getId(), zone);
+            version.incrementAndGet();
+        }
+    }
+
+    void didExitZone(MOCAZone zone) {
+        if (zone.getId() != null && zones.remove(zone.getId()) != null) {
+            version.incrementAndGet();
+        }
+    }
+
+    void didEnterPlace(MOCAPlace place) {
+        if (place.getId() != null) {
+            places.put(place.getId(), place);
+            version.incrementAndGet();
+        }
+    }
+
+    void didExitPlace(MOCAPlace place) {
+        if (place.getId() != null && places.remove(place.getId()) != null) {
+            version.incrementAndGet();
+        }
+    }
+
+    /* Queries */
+
+    long getVersion() {
+        return version.get();
+    }
+
+    Collection<MOCAPlace> placesInside() {
+        seedPlaces();
+        return places.values();
+    }
+
+    Collection<MOCAZone> zonesInside() {
+        return zones.values();
+    }
+
+    void writeBeaconsInRange(MOCAJsonWriter writer, long timestamp) {
+        writer.beginArray();
+        for (BeaconEntry entry : beacons.values()) {
+            writer.beginObject()
+                    .rawMembers(Utils.staticBeaconFragment(entry.beacon))
+                    .name("proximity").value(entry.proximity != null ? entry.proximity.toString() : null)
+                    .name("timestamp").value(timestamp)
+                    .endObject();
+        }
+        writer.endArray();
+    }
+
+    void writeZonesInside(MOCAJsonWriter writer, long timestamp) {
+        writer.beginArray();
+        for (MOCAZone zone : zones.values()) {
+            Utils.writeZone(writer, zone, timestamp);
+        }
+        writer.endArray();
+    }
+
+    void writePlacesInside(MOCAJsonWriter writer, long timestamp) {
+        writer.beginArray();
+        for (MOCAPlace place : placesInside()) {
+            Utils.writePlace(writer, place, timestamp);
+        }
+        writer.endArray();
+    }
+
+    /**
+     * @param sinceVersion version of the caller's last snapshot, 0 if none
+     * @return {"version", "notModified": true} if the state did not change since sinceVersion,
+     * otherwise {"version", "beacons", "zones", "places"}.
+     */
+    String snapshotJson(long sinceVersion) {
+        seedPlaces();
+        final long current = version.get();
+        if (sinceVersion == current) {
+            return new MOCAJsonWriter().beginObject()
+                    .name("version").value(current)
+                    .name("notModified").value(true)
+                    .endObject().toString();
+        }
+        Snapshot cached = snapshot;
+        if (cached == null || cached.version != current) {
+            final long timestamp = System.currentTimeMillis();
+            MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+            writer.beginObject().name("version").value(current).name("beacons");
+            writeBeaconsInRange(writer, timestamp);
+            writer.name("zones");
+            writeZonesInside(writer, timestamp);
+            writer.name("places");
+            writePlacesInside(writer, timestamp);
+            writer.endObject();
+            cached = new Snapshot(current, writer.toString());
+            snapshot = cached;
+        }
+        return cached.json;
+    }
+
+    /**
+     * Seeds the places inside from the SDK place states, once: places entered before the
+     * plugin started are not reported by didEnterPlace.
+     */
+    private void seedPlaces() {
+        if (placesSeeded) {
+            return;
+        }
+        synchronized (this) {
+            if (placesSeeded || !MOCA.initialized()) {
+                return;
+            }
+            final MOCAProximityService proxService = MOCA.getProximityService();
+            if (proxService == null) {
+                return;
+            }
+            final List<MOCAPlace> all = proxService.getPlaces();
+            if (all != null) {
+                for (MOCAPlace place : all) {
+                    if (place.getId() != null && place.getState() == MOCARegionState.Inside) {
+                        places.put(place.getId(), place);
+                    }
+                }
+            }
+            version.incrementAndGet();
+            placesSeeded = true;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.innoquant.moca.phonegap;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Time spent by events in the startup queue before being handed to JavaScript or fired.
+ */
+class MOCAQueueWaitStats {
+
+    private int count;
+    private int expired;
+    private long totalWaitMs;
+    private long maxWaitMs;
+
+    synchronized void record(MOCACordovaEvent event) {
+        final long waitMs = event.getQueuedTimeMs();
+        count++;
+        if (event.isExpired()) {
+            expired++;
+        }
+        totalWaitMs += waitMs;
+        maxWaitMs = Math.max(maxWaitMs, waitMs);
+    }
+
+    synchronized void reset() {
+        count = expired = 0;
+        totalWaitMs = maxWaitMs = 0;
+    }
+
+    synchronized JSONObject toJSON() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("queuedEvents", count);
+        json.put("expiredEvents", expired);
+        json.put("meanWaitMs", count == 0 ? 0 : totalWaitMs / count);
+        json.put("maxWaitMs", maxWaitMs);
+        return json;
+    }
+}
@@ -18,6 +18,39 @@ public class MOCASharedPrefs {
         editor.apply();
     }
 
+    public static void persistEventQueueConfig(int capacity, String overflowPolicy, Context context) {
+        SharedPreferences.Editor editor = context.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE).edit();
+        editor.putInt(MOCAConstants.EVENT_QUEUE_CAPACITY, capacity);
+        editor.putString(MOCAConstants.EVENT_QUEUE_OVERFLOW, overflowPolicy);
+        editor.apply();
+    }
+
+    public static void persistProximityCoalesceWindow(int windowMs, Context context) {
+        SharedPreferences.Editor editor = context.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE).edit();
+        editor.putInt(MOCAConstants.PROXIMITY_COALESCE_MS, windowMs);
+        editor.apply();
+    }
+
+    public static void persistEventTransport(String transport, Context context) {
+        SharedPreferences.Editor editor = context.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE).edit();
+        editor.putString(MOCAConstants.EVENT_TRANSPORT, transport);
+        editor.apply();
+    }
+
+    public static void persistEventJournalConfig(boolean enabled, int maxKb, int maxAgeSec, Context context) {
+        SharedPreferences.Editor editor = context.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE).edit();
+        editor.putBoolean(MOCAConstants.EVENT_JOURNAL, enabled);
+        editor.putInt(MOCAConstants.EVENT_JOURNAL_MAX_KB, maxKb);
+        editor.putInt(MOCAConstants.EVENT_JOURNAL_MAX_AGE_S, maxAgeSec);
+        editor.apply();
+    }
+
+    public static void persistMetricsEnabled(boolean enabled, Context context) {
+        SharedPreferences.Editor editor = context.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE).edit();
+        editor.putBoolean(MOCAConstants.METRICS, enabled);
+        editor.apply();
+    }
+
     public static String getAppKey(Context context){
         SharedPreferences prefs = getSharedPrefs(context);
         return prefs.getString(MOCAConstants.APP_KEY, null);
@@ -32,6 +65,45 @@ public class MOCASharedPrefs {
         return prefs.getString(MOCAConstants.GCM_SENDER_ID, null);
     }
 
+    public static int getEventQueueCapacity(Context context){
+        SharedPreferences prefs = getSharedPrefs(context);
+        return prefs.getInt(MOCAConstants.EVENT_QUEUE_CAPACITY, MOCAEventQueue.DEFAULT_CAPACITY);
+    }
+
+    public static String getEventQueueOverflow(Context context){
+        SharedPreferences prefs = getSharedPrefs(context);
+        return prefs.getString(MOCAConstants.EVENT_QUEUE_OVERFLOW, null);
+    }
+
+    public static int getProximityCoalesceWindow(Context context){
+        SharedPreferences prefs = getSharedPrefs(context);
+        return prefs.getInt(MOCAConstants.PROXIMITY_COALESCE_MS, 0);
+    }
+
+    public static String getEventTransport(Context context){
+        SharedPreferences prefs = getSharedPrefs(context);
+        return prefs.getString(MOCAConstants.EVENT_TRANSPORT, null);
+    }
+
+    public static boolean isEventJournalEnabled(Context context){
+        SharedPreferences prefs = getSharedPrefs(context);
+        return prefs.getBoolean(MOCAConstants.EVENT_JOURNAL, false);
+    }
+
+    public static int getEventJournalMaxKb(Context context){
+        SharedPreferences prefs = getSharedPrefs(context);
+        return prefs.getInt(MOCAConstants.EVENT_JOURNAL_MAX_KB, MOCAEventJournal.DEFAULT_MAX_BYTES / 1024);
+    }
+
+    public static int getEventJournalMaxAgeSec(Context context){
+        SharedPreferences prefs = getSharedPrefs(context);
+        return prefs.getInt(MOCAConstants.EVENT_JOURNAL_MAX_AGE_S, (int) (MOCAEventJournal.DEFAULT_MAX_AGE_MS / 1000));
+    }
+
+    public static boolean isMetricsEnabled(Context context){
+        SharedPreferences prefs = getSharedPrefs(context);
+        return prefs.getBoolean(MOCAConstants.METRICS, false);
+    }
 
     public static SharedPreferences getSharedPrefs(Context context) {
         return context.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE);
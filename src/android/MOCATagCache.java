@@ -0,0 +1,200 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCA;
+import com.innoquant.moca.MOCAInstance;
+import com.innoquant.moca.MOCATag;
+import com.innoquant.moca.utils.logger.MLog;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory copy of the instance tags. Reads are served from memory; writes update the copy
+ * and are written back to the SDK in batches, FLUSH_DELAY_MS after the first pending write,
+ * as one absolute value ("=n") or removal per modified tag.
+ *
+ * The copy is loaded from the SDK on first use, and reloaded after {@link #invalidate()} or
+ * {@link #externalChange(Runnable)}, used when the SDK changes the tags by itself (e.g. an
+ * addTag action). Since flushed values are absolute, the pending writes must be flushed before
+ * such a change, or they would overwrite it.
+ */
+class MOCATagCache {
+
+    static final long FLUSH_DELAY_MS = 500;
+
+    private final MOCATimerWheel timerWheel;
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    private Map<String, Double> tags;
+    //modified tags not yet written to the SDK, null values are removals
+    private final Map<String, Double> dirty = new LinkedHashMap<String, Double>();
+    private MOCATimerWheel.Timeout flushTimeout;
+    private String allTagsJson;
+
+    MOCATagCache(MOCATimerWheel timerWheel) {
+        this.timerWheel = timerWheel;
+    }
+
+    synchronized boolean contains(String tagName) {
+        return loaded().containsKey(tagName);
+    }
+
+    /**
+     * @return the tag value, or null if the tag does not exist.
+     */
+    synchronized Double getValue(String tagName) {
+        return loaded().get(tagName);
+    }
+
+    /**
+     * @return every tag encoded as a JSON object of name to value, cached until the next write.
+     */
+    synchronized String getAllTagsJson() {
+        if (allTagsJson == null) {
+            MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+            writer.beginObject();
+            for (Map.Entry<String, Double> entry : loaded().entrySet()) {
+                writer.name(entry.getKey()).value(entry.getValue().doubleValue());
+            }
+            writer.endObject();
+            allTagsJson = writer.toString();
+        }
+        return allTagsJson;
+    }
+
+    /**
+     * Applies a tag operation. A missing tag counts as 0.
+     */
+    synchronized void addTag(String tagName, MOCATagOperation operation) {
+        final Double current = loaded().get(tagName);
+        final double updated = operation.applyTo(current != null ? current : 0);
+        tags.put(tagName, updated);
+        markDirty(tagName, updated);
+    }
+
+    /**
+     * Applies several tag operations at once; a null operation removes the tag.
+     * The changes are written to the SDK in the same batch.
+     *
+     * @return the resulting tag values, null for removed tags.
+     */
+    synchronized Map<String, Double> apply(Map<String, MOCATagOperation> operations) {
+        final Map<String, Double> values = loaded();
+        final Map<String, Double> results = new LinkedHashMap<String, Double>(operations.size() * 2);
+        for (Map.Entry<String, MOCATagOperation> entry : operations.entrySet()) {
+            final String tagName = entry.getKey();
+            final MOCATagOperation operation = entry.getValue();
+            Double updated = null;
+            if (operation == null) {
+                values.remove(tagName);
+            } else {
+                final Double current = values.get(tagName);
+                updated = operation.applyTo(current != null ? current : 0);
+                values.put(tagName, updated);
+            }
+            markDirty(tagName, updated);
+            results.put(tagName, updated);
+        }
+        return results;
+    }
+
+    synchronized void removeTag(String tagName) {
+        loaded().remove(tagName);
+        markDirty(tagName, null);
+    }
+
+    /**
+     * Drops the in-memory copy after writing the pending changes, so that the next read
+     * reloads the tags from the SDK.
+     */
+    synchronized void invalidate() {
+        flush();
+        tags = null;
+        allTagsJson = null;
+    }
+
+    /**
+     * Runs a change the SDK makes to the tags by itself: the pending writes are flushed first,
+     * and the copy is reloaded after the change, with no cache write in between.
+     */
+    synchronized void externalChange(Runnable change) {
+        flush();
+        try {
+            change.run();
+        } finally {
+            tags = null;
+            allTagsJson = null;
+        }
+    }
+
+    /**
+     * Writes the pending changes to the SDK. Each modified tag is written as its absolute
+     * value ("=n"), not as the operations applied to it, so changes the SDK made to that tag
+     * after the copy was loaded are overwritten.
+     */
+    synchronized void flush() {
+        if (flushTimeout != null) {
+            flushTimeout.cancel();
+            flushTimeout = null;
+        }
+        if (dirty.isEmpty() || !MOCA.initialized()) {
+            return;
+        }
+        MOCAInstance instance = MOCA.getInstance();
+        if (instance == null) {
+            return;
+        }
+        MLog.d("Writing " + dirty.size() + " modified tags to MOCA");
+        for (Map.Entry<String, Double> entry : dirty.entrySet()) {
+            if (entry.getValue() == null) {
+                instance.removeTag(entry.getKey());
+            } else {
+                long value = entry.getValue().longValue();
+                MOCATagOperation.Kind kind = MOCATagOperation.Kind.SET;
+                if (value < 0) {
+                    //"=n" only takes non-negative amounts
+                    instance.addTag(entry.getKey(), MOCATagOperation.of(kind, 0).toString());
+                    kind = MOCATagOperation.Kind.DECREMENT;
+                    value = -value;
+                }
+                instance.addTag(entry.getKey(), MOCATagOperation.of(kind, value).toString());
+            }
+        }
+        dirty.clear();
+    }
+
+    private void markDirty(String tagName, Double value) {
+        dirty.put(tagName, value);
+        allTagsJson = null;
+        if (flushTimeout == null) {
+            flushTimeout = timerWheel.schedule(flushTask, FLUSH_DELAY_MS);
+        }
+    }
+
+    private Map<String, Double> loaded() {
+        if (tags == null) {
+            tags = new HashMap<String, Double>();
+            Set<MOCATag> sdkTags = MOCA.getInstance().getTags();
+            if (sdkTags != null) {
+                for (MOCATag tag : sdkTags) {
+                    tags.put(tag.getName(), (double) tag.getValue());
+                }
+            }
+            //writes not flushed yet win over the SDK values
+            for (Map.Entry<String, Double> entry : dirty.entrySet()) {
+                if (entry.getValue() == null) {
+                    tags.remove(entry.getKey());
+                } else {
+                    tags.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,135 @@
+package com.innoquant.moca.phonegap;
+
+/**
+ * A tag value operation, as accepted by MOCAInstance.addTag: "+n" increments the tag value,
+ * "-n" decrements it and "=n" sets it, n being a non-negative integer.
+ *
+ * Parsing does not use regular expressions, and the operations with small amounts are
+ * shared instances, so the common tag calls do not allocate.
+ */
+final class MOCATagOperation {
+
+    enum Kind {
+        INCREMENT('+'),
+        DECREMENT('-'),
+        SET('=');
+
+        final char symbol;
+
+        Kind(char symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    private static final int CACHED_AMOUNTS = 16;
+    private static final MOCATagOperation[][] cached = new MOCATagOperation[Kind.values().length][CACHED_AMOUNTS + 1];
+
+    static {
+        for (Kind kind : Kind.values()) {
+            for (int amount = 0; amount <= CACHED_AMOUNTS; amount++) {
+                cached[kind.ordinal()][amount] = new MOCATagOperation(kind, amount);
+            }
+        }
+    }
+
+    /**
+     * Operation applied when no value is given.
+     */
+    static final MOCATagOperation INCREMENT_ONE = cached[Kind.INCREMENT.ordinal()][1];
+
+    final Kind kind;
+    final long amount;
+    private String encoded;
+
+    private MOCATagOperation(Kind kind, long amount) {
+        this.kind = kind;
+        this.amount = amount;
+    }
+
+    static MOCATagOperation of(Kind kind, long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Tag amount must not be negative. Found " + amount);
+        }
+        if (amount <= CACHED_AMOUNTS) {
+            return cached[kind.ordinal()][(int) amount];
+        }
+        return new MOCATagOperation(kind, amount);
+    }
+
+    /**
+     * @param value "+n", "-n" or "=n"; null or "null" stand for "+1"
+     * @throws IllegalArgumentException if the value is not a valid operation.
+     */
+    static MOCATagOperation parse(String value) throws IllegalArgumentException {
+        if (value == null || "null".equals(value)) {
+            return INCREMENT_ONE;
+        }
+        final int length = value.length();
+        if (length < 2) {
+            throw invalidValue(value);
+        }
+        final Kind kind;
+        switch (value.charAt(0)) {
+            case '+':
+                kind = Kind.INCREMENT;
+                break;
+            case '-':
+                kind = Kind.DECREMENT;
+                break;
+            case '=':
+                kind = Kind.SET;
+                break;
+            default:
+                throw invalidValue(value);
+        }
+        long amount = 0;
+        for (int i = 1; i < length; i++) {
+            final int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || amount > (Long.MAX_VALUE - digit) / 10) {
+                throw invalidValue(value);
+            }
+            amount = amount * 10 + digit;
+        }
+        return of(kind, amount);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the tag name is null or empty.
+     */
+    static String checkTagName(String tagName) throws IllegalArgumentException {
+        if (tagName == null || tagName.length() == 0) {
+            throw new IllegalArgumentException("Tag name is null or empty!");
+        }
+        return tagName;
+    }
+
+    /**
+     * @param current current tag value, 0 for a missing tag
+     * @return the tag value after applying this operation.
+     */
+    double applyTo(double current) {
+        switch (kind) {
+            case INCREMENT:
+                return current + amount;
+            case DECREMENT:
+                return current - amount;
+            default:
+                return amount;
+        }
+    }
+
+    /**
+     * @return the operation in the format expected by MOCAInstance.addTag.
+     */
+    @Override
+    public String toString() {
+        if (encoded == null) {
+            encoded = kind.symbol + Long.toString(amount);
+        }
+        return encoded;
+    }
+
+    private static IllegalArgumentException invalidValue(String value) {
+        return new IllegalArgumentException("Tag value not valid. Should be, for instance, '+1' '-2' '=3'." + " Found " + value);
+    }
+}
@@ -0,0 +1,256 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.utils.logger.MLog;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel running timers off the main thread.
+ *
+ * Time is divided in ticks of a fixed duration; a timer is stored in the bucket of the tick it
+ * expires in, with the number of full wheel rounds left. A single worker thread advances one
+ * bucket per tick and runs the timers that are due, so scheduling and cancelling are O(1) and
+ * timers fire at most one tick after their deadline. The worker thread is started lazily and
+ * waits, without ticking, while no timer is scheduled. If a timer throws an Error the worker dies,
+ * its timers are handed over to a new worker.
+ */
+class MOCATimerWheel {
+
+    interface Timeout {
+        /**
+         * @return false if the timer already fired or was already cancelled.
+         */
+        boolean cancel();
+    }
+
+    static final long DEFAULT_TICK_MS = 10;
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final String name;
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<TimerTask> pending = new ConcurrentLinkedQueue<TimerTask>();
+    private final long startNanos = System.nanoTime();
+    private Thread worker;
+    private volatile boolean stopped;
+    // timers in the wheel buckets, owned by the worker thread
+    private int scheduled;
+
+    MOCATimerWheel(String name) {
+        this(name, DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE);
+    }
+
+    MOCATimerWheel(String name, long tickMs, int wheelSize) {
+        this.name = name;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMs));
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+    }
+
+    Timeout schedule(Runnable task, long delayMs) {
+        final long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMs));
+        final TimerTask timer = new TimerTask(task, deadline);
+        pending.add(timer);
+        wakeWorker();
+        return timer;
+    }
+
+    synchronized void stop() {
+        stopped = true;
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    private synchronized void wakeWorker() {
+        if (stopped) {
+            return;
+        }
+        if (worker == null) {
+            worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runWheel();
+                    } finally {
+                        workerExited();
+                    }
+                }
+            }, name);
+            worker.setDaemon(true);
+            worker.start();
+        } else {
+            notifyAll();
+        }
+    }
+
+    private void workerExited() {
+        for (Bucket bucket : wheel) {
+            TimerTask timer;
+            while ((timer = bucket.head) != null) {
+                bucket.remove(timer);
+                if (timer.state == TimerTask.ACTIVE) {
+                    pending.add(timer);
+                }
+            }
+        }
+        scheduled = 0;
+        synchronized (this) {
+            if (worker == Thread.currentThread()) {
+                worker = null;
+            }
+        }
+        if (!pending.isEmpty()) {
+            wakeWorker();
+        }
+    }
+
+    private void runWheel() {
+        long tick = currentTick();
+        while (!stopped) {
+            if (scheduled == 0) {
+                synchronized (this) {
+                    while (pending.isEmpty() && !stopped) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+                // the wheel is empty, restart from the current time
+                tick = currentTick();
+            }
+            final long tickDeadline = (tick + 1) * tickNanos;
+            long sleepNanos = tickDeadline - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            transferPending(tick);
+            expire(wheel[(int) (tick & mask)], tickDeadline);
+            tick++;
+        }
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    private void transferPending(long currentTick) {
+        TimerTask timer;
+        while ((timer = pending.poll()) != null) {
+            if (timer.state != TimerTask.ACTIVE) {
+                continue;
+            }
+            final long expiryTick = Math.max(timer.deadline / tickNanos, currentTick);
+            timer.remainingRounds = (expiryTick - currentTick) / wheel.length;
+            wheel[(int) (expiryTick & mask)].add(timer);
+            scheduled++;
+        }
+    }
+
+    private void expire(Bucket bucket, long tickDeadline) {
+        TimerTask timer = bucket.head;
+        while (timer != null) {
+            final TimerTask next = timer.next;
+            if (timer.state != TimerTask.ACTIVE) {
+                bucket.remove(timer);
+                scheduled--;
+            } else if (timer.remainingRounds <= 0 && timer.deadline <= tickDeadline) {
+                bucket.remove(timer);
+                scheduled--;
+                timer.fire();
+            } else {
+                timer.remainingRounds--;
+            }
+            timer = next;
+        }
+    }
+
+    private static final class TimerTask implements Timeout {
+        static final int ACTIVE = 0;
+        static final int CANCELLED = 1;
+        static final int FIRED = 2;
+
+        final Runnable task;
+        final long deadline;
+        long remainingRounds;
+        volatile int state = ACTIVE;
+        TimerTask prev;
+        TimerTask next;
+
+        TimerTask(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (this) {
+                if (state != ACTIVE) {
+                    return false;
+                }
+                state = CANCELLED;
+            }
+            return true;
+        }
+
+        void fire() {
+            synchronized (this) {
+                if (state != ACTIVE) {
+                    return;
+                }
+                state = FIRED;
+            }
+            try {
+                task.run();
+            } catch (Exception e) {
+                MLog.e("Timer task failed", e);
+            }
+        }
+    }
+
+    private static final class Bucket {
+        TimerTask head;
+        TimerTask tail;
+
+        void add(TimerTask timer) {
+            timer.prev = tail;
+            timer.next = null;
+            if (tail != null) {
+                tail.next = timer;
+            } else {
+                head = timer;
+            }
+            tail = timer;
+        }
+
+        void remove(TimerTask timer) {
+            if (timer.prev != null) {
+                timer.prev.next = timer.next;
+            } else {
+                head = timer.next;
+            }
+            if (timer.next != null) {
+                timer.next.prev = timer.prev;
+            } else {
+                tail = timer.prev;
+            }
+            timer.prev = timer.next = null;
+        }
+    }
+}
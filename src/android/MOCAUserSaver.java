@@ -0,0 +1,98 @@
+package com.innoquant.moca.phonegap;
+
+import com.innoquant.moca.MOCACallback;
+import com.innoquant.moca.MOCAException;
+import com.innoquant.moca.MOCAUser;
+import com.innoquant.moca.utils.logger.MLog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write-behind for MOCAUser.save. The save requests made within the window that starts with
+ * the first pending request are merged into a single save, whose outcome is reported to
+ * every merged request. Requests for another user flush the pending save first.
+ */
+class MOCAUserSaver {
+
+    static final long DEFAULT_WINDOW_MS = 500;
+
+    private final MOCATimerWheel timerWheel;
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    private volatile long windowMs = DEFAULT_WINDOW_MS;
+    private MOCAUser pendingUser;
+    private List<MOCACallback<MOCAUser>> pendingCallbacks = new ArrayList<MOCACallback<MOCAUser>>();
+    private MOCATimerWheel.Timeout flushTimeout;
+
+    MOCAUserSaver(MOCATimerWheel timerWheel) {
+        this.timerWheel = timerWheel;
+    }
+
+    /**
+     * @param windowMs merging window, 0 saves on every request
+     */
+    void setWindowMs(long windowMs) {
+        this.windowMs = Math.max(0, windowMs);
+    }
+
+    void save(MOCAUser user, MOCACallback<MOCAUser> callback) {
+        synchronized (this) {
+            if (pendingUser != null && pendingUser != user) {
+                flush();
+            }
+            pendingUser = user;
+            pendingCallbacks.add(callback);
+            if (windowMs > 0) {
+                if (flushTimeout == null) {
+                    flushTimeout = timerWheel.schedule(flushTask, windowMs);
+                }
+                return;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Starts the pending save, if any, right away.
+     */
+    void flush() {
+        final MOCAUser user;
+        final List<MOCACallback<MOCAUser>> callbacks;
+        synchronized (this) {
+            if (flushTimeout != null) {
+                flushTimeout.cancel();
+                flushTimeout = null;
+            }
+            if (pendingUser == null) {
+                return;
+            }
+            user = pendingUser;
+            callbacks = pendingCallbacks;
+            pendingUser = null;
+            pendingCallbacks = new ArrayList<MOCACallback<MOCAUser>>();
+        }
+        if (callbacks.size() > 1) {
+            MLog.d("Merging " + callbacks.size() + " user save requests");
+        }
+        user.save(new MOCACallback<MOCAUser>() {
+            @Override
+            public void success(MOCAUser mocaUser) {
+                for (MOCACallback<MOCAUser> callback : callbacks) {
+                    callback.success(mocaUser);
+                }
+            }
+
+            @Override
+            public void failure(MOCAException e) {
+                for (MOCACallback<MOCAUser> callback : callbacks) {
+                    callback.failure(e);
+                }
+            }
+        });
+    }
+}
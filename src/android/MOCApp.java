@@ -10,23 +10,84 @@ import com.innoquant.moca.utils.logger.*;
 import org.apache.cordova.*;
 import org.json.*;
 
+import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import static com.innoquant.moca.phonegap.MOCAAPI.*;
 
 public class MOCApp extends Application implements MOCAProximityService.EventListener, MOCAProximityService.ActionListener {
 
-    private HashMap<String, MOCACallbackContext> callbackContextMap = new HashMap<String, MOCACallbackContext>();
-    private List<MOCACordovaEvent> eventQueue;
-    private Handler handler;
-    private boolean isQueueingActive = true;
+    private final MOCACallbackRegistry callbackRegistry = new MOCACallbackRegistry();
+    //flow controlled subscriptions, by subscription id
+    private final ConcurrentMap<String, MOCADeliveryControl> subscriptions = new ConcurrentHashMap<String, MOCADeliveryControl>();
+    private final AtomicInteger anonymousSubscriptions = new AtomicInteger();
+    //incremented when the callbacks are cleared, so late journal replays do not register stale callbacks
+    private final AtomicInteger callbacksGeneration = new AtomicInteger();
+    private final MOCAEventQueue eventQueue =
+            new MOCAEventQueue(MOCAEventQueue.DEFAULT_CAPACITY, MOCAEventQueue.OverflowPolicy.DROP_OLDEST);
+    private final MOCAEventQueue.Selector callbackSelector = new MOCAEventQueue.Selector() {
+        @Override
+        public boolean isReady(String eventName) {
+            return cordovaAppCallbackExistForEvent(eventName);
+        }
+    };
+    private final MOCATimerWheel timerWheel = new MOCATimerWheel("MOCAPlugin-timer");
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable expiryTask = new Runnable() {
+        @Override
+        public void run() {
+            processEnqueuedEvents();
+        }
+    };
+    private MOCATimerWheel.Timeout cleaningTimeout;
+    private volatile boolean isQueueingActive = true;
+    private long queueArmedAt = SystemClock.elapsedRealtime();
+    private final MOCAQueueWaitStats queueWaitStats = new MOCAQueueWaitStats();
+    private final MOCAMetrics metrics = new MOCAMetrics();
+    private final MOCATagCache tagCache = new MOCATagCache(timerWheel);
+    private final MOCAUserSaver userSaver = new MOCAUserSaver(timerWheel);
+    private final MOCAPlaceIndex placeIndex = new MOCAPlaceIndex();
+    private final MOCAProximityState proximityState = new MOCAProximityState();
+    private final MOCAEventFramer eventFramer = new MOCAEventFramer(timerWheel);
+    private MOCAProximityCoalescer proximityCoalescer;
+    private volatile boolean msgPackTransport;
+    private final MOCABeaconsSnapshot beaconsSnapshot = new MOCABeaconsSnapshot();
+    private MOCAEventJournal eventJournal;
+    private volatile boolean isJournalEnabled;
+    //listeners waiting for their journaled events, replayed in batches on the journal thread
+    private final Queue<PendingReplay> pendingReplays = new ConcurrentLinkedQueue<PendingReplay>();
+    private final AtomicBoolean replayScheduled = new AtomicBoolean();
+    private final ExecutorService journalExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread thread = new Thread(r, "MOCAPlugin-journal");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
 
 
     @Override
     public void onCreate() {
         //android.os.Debug.waitForDebugger();
         super.onCreate();
+        metrics.setEnabled(MOCASharedPrefs.isMetricsEnabled(this));
+        configureEventQueue(MOCASharedPrefs.getEventQueueCapacity(this),
+                MOCASharedPrefs.getEventQueueOverflow(this));
+        proximityCoalescer = new MOCAProximityCoalescer(timerWheel, new MOCAProximityCoalescer.Sink() {
+            @Override
+            public void deliver(MOCABeacon beacon, MOCAProximity prevProximity, MOCAProximity curProximity, int merged) {
+                enqueueProximityChange(beacon, prevProximity, curProximity, merged);
+            }
+        });
+        proximityCoalescer.setWindowMs(MOCASharedPrefs.getProximityCoalesceWindow(this));
+        setEventTransport(MOCASharedPrefs.getEventTransport(this));
+        eventJournal = new MOCAEventJournal(new File(getFilesDir(), "moca_event_journal.bin"));
+        configureEventJournal(MOCASharedPrefs.isEventJournalEnabled(this),
+                MOCASharedPrefs.getEventJournalMaxKb(this),
+                MOCASharedPrefs.getEventJournalMaxAgeSec(this));
 
         //Auto Init MOCA SDK
         final String appKey = MOCASharedPrefs.getAppKey(this);
@@ -40,7 +101,114 @@ public class MOCApp extends Application implements MOCAProximityService.EventLis
             }
         }
         this.startListeners();
-        eventQueue = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Configures the startup event queue.
+     *
+     * @param capacity       maximum number of queued events
+     * @param overflowPolicy "drop-oldest", "coalesce" or "block"
+     */
+    public void configureEventQueue(int capacity, String overflowPolicy) {
+        eventQueue.configure(capacity, MOCAEventQueue.OverflowPolicy.fromString(overflowPolicy));
+    }
+
+    /**
+     * Sets the window within which beacon proximity changes are coalesced per beacon.
+     *
+     * @param windowMs coalescing window, 0 delivers every change
+     */
+    public void setProximityCoalesceWindow(long windowMs) {
+        proximityCoalescer.setWindowMs(windowMs);
+    }
+
+    /**
+     * Selects how event payloads cross the bridge.
+     *
+     * The Cordova bridge base64 encodes binary results, so MessagePack payloads cross it a third
+     * larger than they are encoded, and are decoded from base64 again in the WebView.
+     *
+     * @param transport "json" (default) or "msgpack" to send MessagePack encoded ArrayBuffers
+     */
+    public void setEventTransport(String transport) {
+        msgPackTransport = MOCAConstants.EVENT_TRANSPORT_MSGPACK.equalsIgnoreCase(transport);
+    }
+
+    /**
+     * Enables the on-disk journal of the proximity events raised while no JavaScript listener
+     * is registered.
+     *
+     * @param enabled   whether undelivered events are journaled
+     * @param maxKb     maximum journal size, oldest events are dropped first
+     * @param maxAgeSec journaled events older than this are discarded
+     */
+    public void configureEventJournal(boolean enabled, int maxKb, int maxAgeSec) {
+        eventJournal.configure(maxKb * 1024, maxAgeSec * 1000L);
+        isJournalEnabled = enabled;
+    }
+
+    MOCAEventFramer getEventFramer() {
+        return eventFramer;
+    }
+
+    MOCATimerWheel getTimerWheel() {
+        return timerWheel;
+    }
+
+    /**
+     * @return false if no subscription has the given id.
+     */
+    boolean ackSubscription(String subscriptionId, int count) {
+        MOCADeliveryControl delivery = subscriptions.get(subscriptionId);
+        if (delivery == null) {
+            return false;
+        }
+        delivery.ack(count);
+        return true;
+    }
+
+    /**
+     * @return the delivered, dropped, coalesced, pending and unacked counters of every
+     * flow controlled subscription.
+     */
+    JSONObject subscriptionStats() throws JSONException {
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, MOCADeliveryControl> entry : subscriptions.entrySet()) {
+            json.put(entry.getKey(), entry.getValue().statsToJSON());
+        }
+        return json;
+    }
+
+    MOCAMetrics getMetrics() {
+        return metrics;
+    }
+
+    MOCATagCache getTagCache() {
+        return tagCache;
+    }
+
+    MOCAPlaceIndex getPlaceIndex() {
+        return placeIndex;
+    }
+
+    MOCAProximityState getProximityState() {
+        return proximityState;
+    }
+
+    MOCAUserSaver getUserSaver() {
+        return userSaver;
+    }
+
+    /**
+     * @param reset whether to clear the metrics after reading them.
+     */
+    JSONObject metricsSnapshot(boolean reset) throws JSONException {
+        JSONObject snapshot = metrics.toJSON(eventQueue.size(), proximityCoalescer);
+        if (reset) {
+            metrics.reset();
+            proximityCoalescer.resetCounts();
+        }
+        return snapshot;
     }
 
     public void startListeners() {
@@ -60,10 +228,69 @@ public class MOCApp extends Application implements MOCAProximityService.EventLis
     }
 
     public void addCallbackContext(String action, MOCACallbackContext callbackContext) {
-        this.callbackContextMap.put(action, callbackContext);
+        MOCADeliveryControl delivery = callbackContext.getDeliveryControl();
+        if (delivery != null) {
+            String id = delivery.getSubscriptionId();
+            if (id == null) {
+                id = action + "#" + anonymousSubscriptions.incrementAndGet();
+            }
+            if (subscriptions.putIfAbsent(id, delivery) != null) {
+                //acks and stats are keyed by subscription id, the first subscription keeps it
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.ERROR,
+                        "Duplicate subscriptionId: " + id));
+                return;
+            }
+        }
         PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
         result.setKeepCallback(true);
-        this.callbackContextMap.get(action).sendPluginResult(result);
+        callbackContext.sendPluginResult(result);
+        if (isJournalEnabled) {
+            //journaled events go first, the callback is registered once they are replayed
+            replayJournaledEvents(action, callbackContext);
+        } else {
+            this.callbackRegistry.add(action, callbackContext);
+        }
+    }
+
+    /**
+     * Removes the callback of a listener and its flow control, and releases the JavaScript
+     * callback. With the journal on, this runs on the journal thread, after the pending
+     * replays that register listeners.
+     */
+    void removeCallbackContext(@NonNull final String eventName, final int listenerId,
+                               @NonNull final CallbackContext callbackContext) {
+        final Runnable removal = new Runnable() {
+            @Override
+            public void run() {
+                MOCACallbackContext removed = callbackRegistry.remove(eventName, listenerId);
+                if (removed == null) {
+                    callbackContext.error("Unknown listener " + listenerId + " for '" + eventName + "'");
+                    return;
+                }
+                MOCADeliveryControl delivery = removed.getDeliveryControl();
+                if (delivery != null) {
+                    delivery.close();
+                    subscriptions.values().remove(delivery);
+                }
+                removed.sendPluginResult(new PluginResult(PluginResult.Status.NO_RESULT));
+                callbackContext.success();
+            }
+        };
+        if (isJournalEnabled) {
+            journalExecutor.execute(removal);
+        } else {
+            removal.run();
+        }
+    }
+
+    /**
+     * Drops every JavaScript callback, e.g. when the WebView navigates or reloads.
+     */
+    public void clearCallbackContexts() {
+        callbacksGeneration.incrementAndGet();
+        this.callbackRegistry.clear();
+        this.subscriptions.clear();
+        this.eventFramer.clearChannel();
     }
 
 
@@ -111,7 +338,20 @@ public class MOCApp extends Application implements MOCAProximityService.EventLis
             MLog.e("addTag callback failed!");
             return false;
         }
-        return enqueueAndProcessEvent(ADD_TAG, mocaAction, args);
+        //the SDK applies the tag itself unless the application blocks the action. Cached writes
+        //go first; the cache is reloaded once the action has fired
+        tagCache.flush();
+        final boolean handled = enqueueAndProcessEvent(ADD_TAG, mocaAction, args);
+        if (!handled) {
+            //the SDK applies the tag when this callback returns
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    tagCache.invalidate();
+                }
+            });
+        }
+        return handled;
     }
 
     @Override
@@ -131,46 +371,50 @@ public class MOCApp extends Application implements MOCAProximityService.EventLis
 
     @Override
     public void didEnterRange(MOCABeacon mocaBeacon, MOCAProximity mocaProximity) {
+        proximityState.didEnterRange(mocaBeacon, mocaProximity);
         enqueueAndProcessEvent(DID_ENTER_RANGE, mocaBeacon);
     }
 
     @Override
     public void didExitRange(MOCABeacon mocaBeacon) {
+        proximityState.didExitRange(mocaBeacon);
+        //a coalesced proximity change must not arrive after the exit
+        proximityCoalescer.flush(mocaBeacon);
         enqueueAndProcessEvent(DID_EXIT_RANGE, mocaBeacon);
     }
 
     @Override
     public void didBeaconProximityChange(MOCABeacon beacon, MOCAProximity prevProximity, MOCAProximity curProximity) {
+        proximityState.didBeaconProximityChange(beacon, curProximity);
+        proximityCoalescer.offer(beacon, prevProximity, curProximity);
+    }
 
-        JSONObject proximityChangeArgs = new JSONObject();
-        try {
-            JSONObject bkn = Utils.beaconToJSON(beacon);
-            proximityChangeArgs.put("beacon", bkn);
-            proximityChangeArgs.put("prevProximity", prevProximity.toString());
-            proximityChangeArgs.put("curProximity", curProximity.toString());
-            enqueueAndProcessEvent(BEACON_PROXIMITY_CHANGE, proximityChangeArgs);
-        } catch (JSONException e) {
-            MLog.e(BEACON_PROXIMITY_CHANGE + " callback failed. " + e);
-        }
+    private void enqueueProximityChange(MOCABeacon beacon, MOCAProximity prevProximity, MOCAProximity curProximity, int merged) {
+        enqueueAndProcessEvent(BEACON_PROXIMITY_CHANGE, new MOCAProximityChange(beacon, prevProximity, curProximity, merged));
     }
 
     @Override
     public void didEnterPlace(MOCAPlace mocaPlace) {
+        placeIndex.didEnterPlace(mocaPlace);
+        proximityState.didEnterPlace(mocaPlace);
         enqueueAndProcessEvent(DID_ENTER_PLACE, mocaPlace);
     }
 
     @Override
     public void didExitPlace(MOCAPlace mocaPlace) {
+        proximityState.didExitPlace(mocaPlace);
         enqueueAndProcessEvent(DID_EXIT_PLACE, mocaPlace);
     }
 
     @Override
     public void didEnterZone(MOCAZone mocaZone) {
+        proximityState.didEnterZone(mocaZone);
         enqueueAndProcessEvent(DID_ENTER_ZONE, mocaZone);
     }
 
     @Override
     public void didExitZone(MOCAZone mocaZone) {
+        proximityState.didExitZone(mocaZone);
         enqueueAndProcessEvent(DID_EXIT_ZONE, mocaZone);
     }
 
@@ -182,23 +426,32 @@ public class MOCApp extends Application implements MOCAProximityService.EventLis
 
     @Override
     public void didLoadedBeaconsData(List<MOCABeacon> list) {
-        JSONArray beaconList = new JSONArray();
-        try {
-            for (MOCABeacon b : list) {
-                beaconList.put(Utils.beaconToJSON(b));
-            }
-            enqueueAndProcessEvent(DID_LOADED_BEACONS_DATA, beaconList);
-        } catch (JSONException e) {
-            MLog.e(DID_LOADED_BEACONS_DATA + "callback failed: " + e);
+        Utils.invalidateSerializationCache();
+        placeIndex.invalidate();
+        enqueueAndProcessEvent(DID_LOADED_BEACONS_DATA, beaconsSnapshot.update(list));
+    }
+
+    /**
+     * Delivers the full beacon registry again, for JavaScript code that lost track of the
+     * delivered versions (e.g. after a page reload).
+     *
+     * @return false if no registry has been loaded yet.
+     */
+    public boolean resyncBeaconsData() {
+        MOCABeaconsData full = beaconsSnapshot.full();
+        if (full == null) {
+            return false;
         }
+        enqueueAndProcessEvent(DID_LOADED_BEACONS_DATA, full);
+        return true;
     }
 
     /* Event queue processing */
 
     /*
     Since V.2.4.4
-        Discussion: As there is no signal from the JavaScript application side indicating
-        MOCA SDK that all callbacks have finished their registration, it is very likely that
+        Discussion: Unless the JavaScript application signals MOCA SDK (MOCA.ready()) that all
+        callbacks have finished their registration, it is very likely that
         during the application start up, MOCA SDK will send the events before the application have
         had time to register its callbacks, resulting in lost events in the javascript code side.
 
@@ -208,6 +461,13 @@ public class MOCApp extends Application implements MOCAProximityService.EventLis
         anymore, but redirected directly to the JS code as always in order to avoid delays
         triggering proximity experiences.
 
+        Each queued event is handed to JS as soon as its callback registers, or fired when it
+        expires: a timer per event runs on the plugin timer wheel, off the main thread. Queueing
+        is re-armed when the WebView reloads.
+
+        When the JavaScript application calls ready, the whole queue is flushed at once and
+        queueing stops; the cleaning timeout is only a fallback for applications that do not.
+
         Bear in mind that if the application is launched by Android OS (or GPSS) in the background,
         cordova (ver 7 at this moment) DOES NOT create the webview, therefore, no JavScript code
         is executed at all, and callbacks won't work.
@@ -227,12 +487,20 @@ public class MOCApp extends Application implements MOCAProximityService.EventLis
         MOCACordovaEvent mocaEvent = new MOCACordovaEvent(eventName, mocaAction, data);
         if (isQueueingActive) {
             MLog.d("Event received with name: " + eventName + ". Adding to the queue...");
-            eventQueue.add(mocaEvent);
+            MOCACordovaEvent evicted = eventQueue.offer(mocaEvent);
+            if (metrics.isEnabled()) {
+                metrics.eventQueueDepth(eventQueue.size());
+            }
+            if (evicted != null) {
+                queueWaitStats.record(evicted);
+                fireEventAsync(evicted);
+            }
+            timerWheel.schedule(expiryTask, mocaEvent.getRemainingTimeMs());
             processEnqueuedEvents();
             scheduleQueueCleaning(MOCACordovaEvent.EXPIRE_TIME_MS + 1000);
             return true; //return true for queued events (prevent MOCA from firing actions)
         } else {
-            if (!eventQueue.isEmpty()) { //eventQueue is not synchronized between threads.
+            if (!eventQueue.isEmpty()) {
                 processEnqueuedEvents();
             }
             MLog.d("Event received with name: " + eventName + ". No longer queueing and queue is empty. Executing...");
@@ -245,24 +513,18 @@ public class MOCApp extends Application implements MOCAProximityService.EventLis
      * the callback is called and the action associated with the event (if any) is fired immediately.
      * Otherwise the event is left in the queue until the next cycle.
      * If the event has expired, call the cordova app callbacks (if any) and fire the actions (if any)
+     * Ready events are processed in the same order they arrived.
      */
     private void processEnqueuedEvents() {
-        MLog.d("There are " + eventQueue.size() + " events in the queue. Processing queue.");
-        for (MOCACordovaEvent event : eventQueue) {
-            String eventName = event.getEventName();
-            MLog.d("\tProcessing event: \"" + eventName + "\"");
-            boolean hasCordovaCallback = cordovaAppCallbackExistForEvent(eventName);
-            boolean isEventExpired = event.isExpired();
-            if (hasCordovaCallback || isEventExpired) {
-                MLog.d("\t\tEvent has callback -> " + (hasCordovaCallback ? "YES" : "NO"));
-                MLog.d("\t\tEvent is expired -> " + (isEventExpired ? "YES" : "NO"));
-                MLog.d("\t\tFiring...");
-                fireEventAsync(event);
-                eventQueue.remove(event);
-                MLog.d("\t\tEvent removed from queue");
-            }
-            //otherwise leave it in the queue until next cycle.
+        List<MOCACordovaEvent> readyEvents = eventQueue.pollReady(callbackSelector);
+        MLog.d(readyEvents.size() + " events ready, " + eventQueue.size() + " left in the queue.");
+        for (MOCACordovaEvent event : readyEvents) {
+            queueWaitStats.record(event);
+            MLog.d("\tProcessing event: \"" + event.getEventName() + "\"");
+            MLog.d("\t\tFiring...");
+            fireEventAsync(event);
         }
+        //events without callback that have not expired are left in the queue until next cycle.
     }
 
     /**
@@ -275,7 +537,35 @@ public class MOCApp extends Application implements MOCAProximityService.EventLis
                 invokeCordovaCallbacksForEvent(event);
         if (!isEventBlockedByCordovaApp) {
             MLog.d("\t\tEvent not blocked by application. Firing..");
-            event.fireAction();
+            fireActionOnMainThread(event);
+        }
+    }
+
+    /**
+     * Actions show UI, so they are fired on the main thread. Queued events are fired
+     * from the timer wheel and the plugin lanes too.
+     */
+    private void fireActionOnMainThread(final MOCACordovaEvent event) {
+        final Runnable fire = new Runnable() {
+            @Override
+            public void run() {
+                if (!ADD_TAG.equals(event.getEventName())) {
+                    event.fireAction();
+                    return;
+                }
+                //the action changes the tags behind the tag cache
+                tagCache.externalChange(new Runnable() {
+                    @Override
+                    public void run() {
+                        event.fireAction();
+                    }
+                });
+            }
+        };
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            fire.run();
+        } else {
+            mainHandler.post(fire);
         }
     }
 
@@ -284,74 +574,324 @@ public class MOCApp extends Application implements MOCAProximityService.EventLis
      *
      * @param expireTimeMs time until next cleaning task execution
      */
-    private void scheduleQueueCleaning(long expireTimeMs) {
-        if (handler != null) {
+    private synchronized void scheduleQueueCleaning(long expireTimeMs) {
+        if (cleaningTimeout != null) {
             //do not reschedule an existing scheduled cleaning task
             return;
         }
         MLog.d("Scheduling next queue clean task.");
-        handler = new Handler(Looper.getMainLooper());
-        handler.postDelayed(new CleaningTask(this), expireTimeMs);
+        cleaningTimeout = timerWheel.schedule(new CleaningTask(this), expireTimeMs);
+    }
+
+    /**
+     * Turns event queueing back on, e.g. when the WebView reloads and its JavaScript callbacks
+     * have to register again. The queue is cleaned again once the first event expires.
+     */
+    public synchronized void rearmEventQueue() {
+        MLog.d("Re-arming event queue.");
+        if (cleaningTimeout != null) {
+            cleaningTimeout.cancel();
+            cleaningTimeout = null;
+        }
+        isQueueingActive = true;
+        queueArmedAt = SystemClock.elapsedRealtime();
+        queueWaitStats.reset();
+    }
+
+    /**
+     * Called when the JavaScript application has registered its callbacks: stops queueing
+     * and delivers every queued event right away, without waiting for the cleaning timeout.
+     *
+     * @return statistics of the time events waited in the queue.
+     */
+    public synchronized JSONObject markJavaScriptReady() throws JSONException {
+        final long readyAfterMs = SystemClock.elapsedRealtime() - queueArmedAt;
+        if (cleaningTimeout != null) {
+            cleaningTimeout.cancel();
+            cleaningTimeout = null;
+        }
+        stopQueueingEvents();
+        List<MOCACordovaEvent> events = eventQueue.drain();
+        MLog.i("JavaScript ready after " + readyAfterMs + " ms. Flushing " + events.size() + " queued events.");
+        for (MOCACordovaEvent event : events) {
+            queueWaitStats.record(event);
+            fireEventAsync(event);
+        }
+        JSONObject stats = queueWaitStats.toJSON();
+        stats.put("flushedEvents", events.size());
+        stats.put("readyAfterMs", readyAfterMs);
+        return stats;
     }
 
     private boolean cordovaAppCallbackExistForEvent(@NonNull String eventName) {
-        MOCACallbackContext callbackCtx = callbackContextMap.get(eventName);
-        return callbackCtx != null;
+        return callbackRegistry.contains(eventName);
     }
 
     /**
-     * fires events (callbacks) in the webview
+     * fires events (callbacks) in the webview. The subscription filters are checked first,
+     * then the payload is encoded once and sent to every callback that accepts the event.
      *
      * @param mocaEvent the generated MOCA Event
-     * @return the first argument sent by the webview when suscribing to callback
-     * Example moca.
+     * @return true if any callback asked, with its first argument when suscribing,
+     * to prevent MOCA from firing the event action.
      */
 
     private boolean invokeCordovaCallbacksForEvent(@NonNull MOCACordovaEvent mocaEvent) {
         String eventName = mocaEvent.getEventName();
-        Object data = mocaEvent.getData();
         MLog.d("Invoking cordova callback for event: " + eventName);
-        MOCACallbackContext callbackCtx = callbackContextMap.get(eventName);
-        if (callbackCtx != null) {
-            try {
-                JSONObject event = new JSONObject();
-                event.put("detail", getJSONFromObject(eventName, data));
-                PluginResult result;
-                result = new PluginResult(PluginResult.Status.OK, event);
+        MOCACallbackContext[] callbacks = callbackRegistry.get(eventName);
+        if (callbacks.length == 0) {
+            MLog.w("No JavaScript listeners for event '" + eventName + "'");
+            if (isJournalEnabled && JOURNALED_EVENTS.contains(eventName)) {
+                journalEvent(mocaEvent);
+            }
+            return false;
+        }
+        MOCACallbackContext[] subscribers = null;
+        int accepted = 0;
+        for (int i = 0; i < callbacks.length; i++) {
+            if (callbacks[i].accepts(mocaEvent.getData())) {
+                if (subscribers != null) {
+                    subscribers[accepted] = callbacks[i];
+                }
+                accepted++;
+            } else if (subscribers == null) {
+                subscribers = new MOCACallbackContext[callbacks.length];
+                System.arraycopy(callbacks, 0, subscribers, 0, i);
+            }
+        }
+        if (accepted == 0) {
+            MLog.d("Event '" + eventName + "' filtered out by every listener");
+            return false;
+        }
+        if (subscribers != null) {
+            callbacks = Arrays.copyOf(subscribers, accepted);
+        }
+        boolean blocked = false;
+        final boolean timed = metrics.isEnabled();
+        final boolean framing = eventFramer.isActive();
+        try {
+            final long encodeStartedAt = timed ? System.nanoTime() : 0;
+            //with event frames, the listeners without flow control get the event in the next frame
+            int[] framed = null;
+            int framedCount = 0;
+            MOCACallbackContext[] direct = callbacks;
+            int directCount = callbacks.length;
+            if (framing) {
+                framed = new int[callbacks.length];
+                direct = new MOCACallbackContext[callbacks.length];
+                directCount = 0;
+                for (MOCACallbackContext callbackCtx : callbacks) {
+                    if (callbackCtx.isFrameable()) {
+                        framed[framedCount++] = callbackCtx.getListenerId();
+                    } else {
+                        direct[directCount++] = callbackCtx;
+                    }
+                }
+            }
+            String json = null;
+            if (framedCount > 0 || (directCount > 0 && !msgPackTransport)) {
+                MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+                writer.beginObject().name("detail");
+                writeEventData(writer, eventName, mocaEvent);
+                writer.endObject();
+                json = writer.toString();
+            }
+            PluginResult result = null;
+            if (directCount > 0) {
+                if (msgPackTransport) {
+                    result = new PluginResult(PluginResult.Status.OK, MOCAMsgPackEncoder.encodeEvent(eventName, mocaEvent));
+                } else {
+                    result = new MOCAEncodedPluginResult(PluginResult.Status.OK, json);
+                }
                 result.setKeepCallback(true);
-                callbackCtx.sendPluginResult(result);
-
+            }
+            final long encodedAt = timed ? System.nanoTime() : 0;
+            if (framedCount > 0) {
+                eventFramer.append(framed, framedCount, eventName, json);
+            }
+            for (int i = 0; i < directCount; i++) {
+                direct[i].deliver(result);
+            }
+            for (MOCACallbackContext callbackCtx : callbacks) {
                 //Arguments in callbacks are used to determine if MOCA should
                 //show a Proximity Experience, or only send callbacks.
-                return callbackCtx.getBooleanArg();
-            } catch (JSONException e) {
-                MLog.e(eventName + "callback failed: " + e);
-            } catch (Exception e) {
-                MLog.wtf("Unexpected error. " + eventName + "callback failed");
+                blocked |= callbackCtx.getBooleanArg();
             }
-        } else {
-            MLog.w("No JavaScript listeners for event '" + eventName + "'");
+            if (timed) {
+                metrics.eventDelivered(eventName, encodedAt - encodeStartedAt, mocaEvent.getAgeNanos());
+            }
+        } catch (JSONException e) {
+            MLog.e(eventName + "callback failed: " + e);
+        } catch (IOException e) {
+            MLog.e(eventName + "callback failed, cannot encode MessagePack payload: " + e);
+        } catch (Exception e) {
+            MLog.wtf("Unexpected error. " + eventName + "callback failed");
+        }
+        return blocked;
+    }
+
+    /* Event journal */
+
+    //only proximity events are journaled: actions have already been fired natively when no
+    //listener handles them, and beacon registry updates are superseded by the next one
+    private static final Set<String> JOURNALED_EVENTS = new HashSet<String>(Arrays.asList(
+            DID_ENTER_RANGE, DID_EXIT_RANGE, BEACON_PROXIMITY_CHANGE,
+            DID_ENTER_PLACE, DID_EXIT_PLACE, DID_ENTER_ZONE, DID_EXIT_ZONE));
+
+    private void journalEvent(@NonNull final MOCACordovaEvent mocaEvent) {
+        final String eventName = mocaEvent.getEventName();
+        final String payload;
+        try {
+            MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+            writeEventData(writer, eventName, mocaEvent);
+            payload = writer.toString();
+        } catch (JSONException e) {
+            MLog.e("Cannot journal event '" + eventName + "': " + e);
+            return;
+        }
+        journalExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (callbackRegistry.contains(eventName)) {
+                    //a callback was registered, after its replay, while the event was on its way
+                    invokeCordovaCallbacksForEvent(mocaEvent);
+                    return;
+                }
+                eventJournal.append(eventName, mocaEvent.getTimestamp(), payload);
+            }
+        });
+    }
+
+    /**
+     * Sends the journaled events that pass the callback filter to a new callback, flagged as
+     * replayed, and removes them from the journal. The callback is then registered, on the
+     * journal thread, so that live events come after the replayed ones.
+     *
+     * The registrations waiting on the journal thread are replayed as one batch, so the journal
+     * is read and rewritten once per batch rather than once per listener.
+     */
+    private void replayJournaledEvents(@NonNull String eventName,
+                                       @NonNull MOCACallbackContext callbackContext) {
+        pendingReplays.add(new PendingReplay(eventName, callbackContext, callbacksGeneration.get()));
+        if (!replayScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        journalExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                replayScheduled.set(false);
+                final List<PendingReplay> batch = new ArrayList<PendingReplay>();
+                final int generation = callbacksGeneration.get();
+                PendingReplay pending;
+                while ((pending = pendingReplays.poll()) != null) {
+                    //callbacks cleared since they were added are dropped
+                    if (pending.generation == generation) {
+                        batch.add(pending);
+                    }
+                }
+                try {
+                    replayBatch(batch);
+                } finally {
+                    for (PendingReplay registration : batch) {
+                        if (registration.generation == callbacksGeneration.get()) {
+                            callbackRegistry.add(registration.eventName, registration.callbackContext);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Delivers each journaled record to every listener of the batch that accepts it.
+     */
+    private void replayBatch(@NonNull final List<PendingReplay> batch) {
+        boolean journaled = false;
+        for (PendingReplay pending : batch) {
+            journaled |= JOURNALED_EVENTS.contains(pending.eventName);
+        }
+        if (!journaled) {
+            return;
+        }
+        List<MOCAEventJournal.Record> records = eventJournal.replay(new MOCAEventJournal.Selector() {
+            @Override
+            public boolean select(MOCAEventJournal.Record record) {
+                for (PendingReplay pending : batch) {
+                    if (pending.accepts(record)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        });
+        if (records.isEmpty()) {
+            return;
+        }
+        MLog.d("Replaying " + records.size() + " journaled events to " + batch.size() + " listeners");
+        for (MOCAEventJournal.Record record : records) {
+            PluginResult result = null;
+            for (PendingReplay pending : batch) {
+                if (!pending.accepts(record)) {
+                    continue;
+                }
+                if (result == null) {
+                    MOCAJsonWriter writer = MOCAJsonWriter.obtain();
+                    writer.beginObject()
+                            .name("detail").rawValue(record.payload)
+                            .name("replayed").value(true)
+                            .endObject();
+                    result = new MOCAEncodedPluginResult(PluginResult.Status.OK, writer.toString());
+                    result.setKeepCallback(true);
+                }
+                pending.callbackContext.deliver(result);
+            }
+        }
+    }
+
+    private static final class PendingReplay {
+        final String eventName;
+        final MOCACallbackContext callbackContext;
+        final int generation;
+
+        PendingReplay(String eventName, MOCACallbackContext callbackContext, int generation) {
+            this.eventName = eventName;
+            this.callbackContext = callbackContext;
+            this.generation = generation;
+        }
+
+        boolean accepts(MOCAEventJournal.Record record) {
+            return eventName.equals(record.eventName) && callbackContext.acceptsJournaled(record.payload);
         }
-        return false;
     }
 
     //Helper methods
-    private JSONObject getJSONFromObject(@NonNull String eventName, @NonNull Object data) throws JSONException {
-        JSONObject jsonData = new JSONObject();
+
+    /**
+     * Encodes the payload of an event straight into the writer, without building an
+     * intermediate org.json tree.
+     */
+    private void writeEventData(@NonNull MOCAJsonWriter writer, @NonNull String eventName,
+                                @NonNull MOCACordovaEvent mocaEvent) throws JSONException {
+        final Object data = mocaEvent.getData();
+        final long timestamp = mocaEvent.getTimestamp();
         if (data instanceof MOCAZone) {
-            jsonData = Utils.zoneToJSON((MOCAZone) data);
+            Utils.writeZone(writer, (MOCAZone) data, timestamp);
         } else if (data instanceof MOCAPlace) {
-            jsonData = Utils.placeToJSON((MOCAPlace) data);
+            Utils.writePlace(writer, (MOCAPlace) data, timestamp);
         } else if (data instanceof MOCABeacon) {
-            jsonData = Utils.beaconToJSON((MOCABeacon) data);
+            Utils.writeBeacon(writer, (MOCABeacon) data, timestamp);
+        } else if (data instanceof MOCAProximityChange) {
+            ((MOCAProximityChange) data).writeTo(writer, timestamp);
+        } else if (data instanceof MOCAJsonWriter.Writable) {
+            ((MOCAJsonWriter.Writable) data).writeTo(writer);
         } else if (data instanceof JSONObject) {
-            jsonData = (JSONObject) data;
+            writer.rawValue(data.toString());
         } else if (data instanceof String || data instanceof JSONArray) {
-            jsonData.put(eventName, data);
+            writer.beginObject().name(eventName).value(data).endObject();
         } else {
             throw new JSONException("Cannot serialize data of type " + data.getClass().getName() + ", unsupported data type");
         }
-        return jsonData;
     }
 
 
@@ -4,53 +4,111 @@ import com.innoquant.moca.MOCABeacon;
 import com.innoquant.moca.MOCAPlace;
 import com.innoquant.moca.MOCAZone;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by tomacco on 21/11/15.
  */
 public class Utils {
-    public static JSONObject beaconToJSON(MOCABeacon beacon) throws JSONException {
-        if (beacon == null) return null;
-        Date date = new Date();
-        JSONObject bkn = new JSONObject();
-        bkn.put("type", "beacon");
-        bkn.put("id", beacon.getId());
-        bkn.put("uuid", beacon.getProximityUUID().toString());
-        bkn.put("major", beacon.getMajor());
-        bkn.put("minor", beacon.getMinor());
-        bkn.put("name", beacon.getName());
-        bkn.put("proximity", beacon.getProximity().toString());
-        bkn.put("timestamp", date.getTime());
+
+    /*
+     * Serialization cache. The static part of a beacon, place or zone is encoded once and
+     * kept by entity id as JSON object members; each event appends it verbatim and only
+     * encodes the volatile fields (proximity, timestamp). The cache, and its MessagePack
+     * counterpart in MOCAMsgPackEncoder, is invalidated when the SDK delivers new registry data.
+     */
+    private static final ConcurrentHashMap<String, String> beaconCache = new ConcurrentHashMap<String, String>();
+    private static final ConcurrentHashMap<String, String> placeCache = new ConcurrentHashMap<String, String>();
+    private static final ConcurrentHashMap<String, String> zoneCache = new ConcurrentHashMap<String, String>();
+
+    public static void invalidateSerializationCache() {
+        beaconCache.clear();
+        placeCache.clear();
+        zoneCache.clear();
+        MOCAMsgPackEncoder.invalidateCache();
+    }
+
+    static void writeBeacon(MOCAJsonWriter writer, MOCABeacon beacon, long timestamp) {
+        if (beacon == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject()
+                .rawMembers(staticBeaconFragment(beacon))
+                .name("proximity").value(beacon.getProximity().toString())
+                .name("timestamp").value(timestamp)
+                .endObject();
+    }
+
+    static void writePlace(MOCAJsonWriter writer, MOCAPlace mocaPlace, long timestamp) {
+        if (mocaPlace == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject()
+                .rawMembers(staticPlaceFragment(mocaPlace))
+                .name("timestamp").value(timestamp)
+                .endObject();
+    }
+
+    static void writeZone(MOCAJsonWriter writer, MOCAZone mocaZone, long timestamp) {
+        if (mocaZone == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject()
+                .rawMembers(staticZoneFragment(mocaZone))
+                .name("timestamp").value(timestamp)
+                .endObject();
+    }
+
+    static String staticBeaconFragment(MOCABeacon beacon) {
+        final String id = beacon.getId();
+        String bkn = id != null ? beaconCache.get(id) : null;
+        if (bkn == null) {
+            bkn = new MOCAJsonWriter()
+                    .name("type").value("beacon")
+                    .name("id").value(id)
+                    .name("uuid").value(beacon.getProximityUUID().toString())
+                    .name("major").value(beacon.getMajor())
+                    .name("minor").value(beacon.getMinor())
+                    .name("name").value(beacon.getName())
+                    .toString();
+            if (id != null) beaconCache.put(id, bkn);
+        }
         return bkn;
     }
-    public static JSONObject placeToJSON(MOCAPlace mocaPlace) throws JSONException{
-        if(mocaPlace == null) return null;
-        Date date = new Date();
-        JSONObject plc = new JSONObject();
-        plc.put("type", "place");
-        plc.put("name", mocaPlace.getName());
-        plc.put("id", mocaPlace.getId());
-        JSONObject gfence = new JSONObject();
-        gfence.put("lat", mocaPlace.getGeoFence().getCenter().getLatitude());
-        gfence.put("lon", mocaPlace.getGeoFence().getCenter().getLongitude());
-        gfence.put("accuracy", mocaPlace.getGeoFence().getCenter().getAccuracy());
-        plc.put("geofence", gfence);
-        plc.put("timestamp", date.getTime());
+
+    static String staticPlaceFragment(MOCAPlace mocaPlace) {
+        final String id = mocaPlace.getId();
+        String plc = id != null ? placeCache.get(id) : null;
+        if (plc == null) {
+            plc = new MOCAJsonWriter()
+                    .name("type").value("place")
+                    .name("name").value(mocaPlace.getName())
+                    .name("id").value(id)
+                    .name("geofence").beginObject()
+                    .name("lat").value(mocaPlace.getGeoFence().getCenter().getLatitude())
+                    .name("lon").value(mocaPlace.getGeoFence().getCenter().getLongitude())
+                    .name("accuracy").value(mocaPlace.getGeoFence().getCenter().getAccuracy())
+                    .endObject()
+                    .toString();
+            if (id != null) placeCache.put(id, plc);
+        }
         return plc;
     }
 
-    public static JSONObject zoneToJSON(MOCAZone mocaZone) throws JSONException{
-        if(mocaZone == null) return null;
-        Date date = new Date();
-        JSONObject zn = new JSONObject();
-        zn.put("type", "zone");
-        zn.put("id", mocaZone.getId());
-        zn.put("name", mocaZone.getName());
-        zn.put("timestamp", date.getTime());
+    static String staticZoneFragment(MOCAZone mocaZone) {
+        final String id = mocaZone.getId();
+        String zn = id != null ? zoneCache.get(id) : null;
+        if (zn == null) {
+            zn = new MOCAJsonWriter()
+                    .name("type").value("zone")
+                    .name("id").value(id)
+                    .name("name").value(mocaZone.getName())
+                    .toString();
+            if (id != null) zoneCache.put(id, zn);
+        }
         return zn;
     }
 }
@@ -20,6 +20,29 @@
 //  the software available to any entities without the explicit written
 //  permission of InnoQuant.
 //
+// Listener ids, event frames and the other Android only options are not sent to iOS,
+// which reads some listener arguments positionally.
+function isAndroid() {
+    return typeof cordova !== "undefined" && cordova.platformId === "android";
+}
+//
+// Returns a shallow copy of the caller's options, with extra fields added.
+//
+function copyOptions(options, extra) {
+    var copy = {};
+    var key;
+    for (key in options) {
+        if (options.hasOwnProperty(key)) {
+            copy[key] = options[key];
+        }
+    }
+    for (key in extra) {
+        if (extra.hasOwnProperty(key)) {
+            copy[key] = extra[key];
+        }
+    }
+    return copy;
+}
 var MOCA = function() {
     // CONSTANTS
     // Events
@@ -45,6 +68,11 @@ var MOCA = function() {
     this.APP_KEY = "moca_app_key";
     this.APP_SECRET = "moca_app_secret";
     this.GCM_SENDER_ID = "gcm_sender_id";
+    // Flow controlled listeners registered so far
+    this._subscriptions = 0;
+    // Event listeners by id
+    this._listenerCount = 0;
+    this._listeners = {};
 };
 // Types
 MOCA.prototype.logLevel = {
@@ -80,6 +108,301 @@ MOCA.prototype.call_native = function(callback, name, args) {
     );
     return ret;
 };
+//
+// Executes several native calls in a single bridge round-trip.
+//
+// MOCA.batch([
+//     {action: "version"},
+//     {action: "instance_contains_tag", args: ["buyer"]}
+// ], function (results) {
+//     // results[i].action // action name of the i-th call
+//     // results[i].status // "ok" or "error"
+//     // results[i].result // value returned by the i-th call
+// });
+//
+MOCA.prototype.batch = function(calls, callback) {
+    return cordova.exec(callback, this.failure, 'MOCAPlugin', "batch", [calls]);
+};
+//
+// Signals that the application has registered its listeners (Android). Events queued during
+// start up are delivered at once instead of after the queueing timeout. Call it again after a
+// page reload. The callback receives queue statistics:
+// {queuedEvents, expiredEvents, meanWaitMs, maxWaitMs, flushedEvents, readyAfterMs}.
+//
+MOCA.prototype.ready = function(callback) {
+    return cordova.exec(callback, this.failure, 'MOCAPlugin', "ready", []);
+};
+//
+// Reads the bridge and event delivery metrics (Android, moca_metrics preference). Pass
+// reset = true to clear them after reading.
+//
+// MOCA.metrics(function (m) {
+//     // m.actions[name] // {calls, errors, queueWait, exec}
+//     // m.events[name] // {serialize, deliver}
+//     // m.gauges // {lanePending, eventQueueDepth, eventQueueMaxDepth}
+//     // m.proximityCoalescing // {merged, suppressed} proximity changes (moca_proximity_coalesce_ms)
+//     // each histogram is {count, meanUs, p50Us, p90Us, p99Us, maxUs}
+// }, false);
+//
+MOCA.prototype.metrics = function(callback, reset) {
+    return this.call_native(callback, "metrics", !!reset);
+};
+//
+// Counters of the flow controlled listeners (Android), by subscription id:
+// {delivered, dropped, coalesced, pending, unacked}.
+//
+MOCA.prototype.subscriptionStats = function(callback) {
+    return this.call_native(callback, "subscriptionStats");
+};
+//
+// Registers an event or action listener. Event payloads sent by the native side as
+// MessagePack ArrayBuffers (moca_event_transport = msgpack) are decoded before invoking the callback.
+// The Cordova bridge carries binary results base64 encoded, a third larger than the MessagePack
+// bytes, so msgpack pays off for numeric payloads rather than for short, string-heavy events.
+// With moca_event_journal enabled (Android), beacon, place and zone events raised while no listener
+// was registered are delivered when the listener registers, before any live event, flagged with
+// e.replayed = true. Actions and beacon registry updates are not journaled.
+// Only the events that pass the listener filter are replayed.
+// When args is an options object with an ackWindow, a subscription id is generated unless given,
+// and the handled events are acknowledged once per turn of the event loop. A subscription id can
+// be used by one listener at a time, the native side rejects duplicates.
+// Returns the listener id, to be passed to removeListener.
+//
+MOCA.prototype.add_listener = function(callback, name, args) {
+    var self = this;
+    var ack = null;
+    if (args && typeof args === "object" && args.ackWindow > 0 && !args.subscriptionId) {
+        // the caller's options may be shared by several listeners, each needs its own id
+        args = copyOptions(args, {subscriptionId: name + "-" + (++this._subscriptions)});
+    }
+    if (args && typeof args === "object" && args.ackWindow > 0) {
+        ack = this.acker(args.subscriptionId);
+    }
+    var listener = function(e) {
+        if (ack) {
+            ack();
+        }
+        if (e instanceof ArrayBuffer) {
+            e = self.decodeMsgPack(e);
+        }
+        if (e && e.detail && e.detail.beaconsDelta) {
+            e = self.applyBeaconsDelta(e.detail.beaconsDelta);
+            if (!e) {
+                return;
+            }
+        }
+        callback(e);
+    };
+    // listeners are also reachable by id, for event frames (moca_event_frames)
+    var listenerId = ++this._listenerCount;
+    this._listeners[listenerId] = listener;
+    var nativeArgs = arguments.length > 2 ? [args] : [];
+    if (isAndroid()) {
+        // argument 0 keeps its meaning (e.g. the skip default handler flag), the id goes after it
+        if (args && typeof args === "object") {
+            nativeArgs = [copyOptions(args, {listenerId: listenerId})];
+        } else {
+            nativeArgs = [arguments.length > 2 ? args : null, {listenerId: listenerId}];
+        }
+    }
+    cordova.exec(listener, this.failure, 'MOCAPlugin', name, nativeArgs);
+    return listenerId;
+};
+//
+// Removes a listener (Android). listenerId is the value returned by add_listener and by
+// the add*Listener methods.
+//
+// var id = MOCA.addEnterBeaconListener(callback);
+// MOCA.removeListener(MOCA.DID_ENTER_RANGE, id);
+//
+MOCA.prototype.removeListener = function(name, listenerId, callback) {
+    delete this._listeners[listenerId];
+    return cordova.exec(callback || null, this.failure, 'MOCAPlugin', "removeListener", [name, listenerId]);
+};
+//
+// Splits an event frame, [{s: [listener ids], e: event name, d: event}], back into
+// per-listener callbacks, in order.
+//
+MOCA.prototype.dispatchFrame = function(frame) {
+    if (!frame || !frame.length) {
+        return;
+    }
+    for (var i = 0; i < frame.length; i++) {
+        var entry = frame[i];
+        for (var j = 0; j < entry.s.length; j++) {
+            var listener = this._listeners[entry.s[j]];
+            if (listener) {
+                listener(entry.d);
+            }
+        }
+    }
+};
+//
+// Returns a function that counts handled events, and acknowledges them in one call per turn
+// of the event loop.
+//
+MOCA.prototype.acker = function(subscriptionId) {
+    var self = this;
+    var count = 0;
+    return function() {
+        if (count++ === 0) {
+            setTimeout(function() {
+                var acked = count;
+                count = 0;
+                cordova.exec(null, self.failure, 'MOCAPlugin', "ack", [subscriptionId, acked]);
+            }, 0);
+        }
+    };
+};
+//
+// Registers a proximity event listener, with an optional filter evaluated on the native side
+// (Android) before the event is serialized:
+//
+// MOCA.addEnterBeaconListener(callback, {
+//     ids: ["id1", "id2"],          // beacon, place or zone ids
+//     uuid: "B9407F30-...",         // beacon proximity UUID
+//     major: [10, 20],              // beacon major, a value or an inclusive [min, max] range
+//     minor: 7,                     // beacon minor, a value or an inclusive [min, max] range
+//     proximity: "near",            // farthest accepted proximity (beaconProximityChange only)
+//     namePrefix: ["Dept A", "Hall"] // beacon, place or zone name prefixes
+// });
+//
+// The same object also takes delivery options (Android):
+//
+//     rate: 5,            // events per second, with bursts of up to burst events
+//     burst: 10,
+//     overflow: "latest", // events over the rate: "drop", "latest" (keep the newest) or "buffer"
+//     bufferSize: 16,     // events kept with overflow "buffer"
+//     ackWindow: 20       // at most this many events in flight until acknowledged
+//
+MOCA.prototype.add_listener_filtered = function(callback, name, filter) {
+    if (filter) {
+        return this.add_listener(callback, name, filter);
+    }
+    return this.add_listener(callback, name);
+};
+//
+// Applies a beacon registry delta sent by the native side (Android) to the local copy of the
+// registry, and returns the event expected by data ready listeners:
+// {detail: {didLoadedBeaconsData: [beacons], delta: delta}}.
+// Returns null, and requests a full resync, when a version was missed.
+//
+MOCA.prototype.applyBeaconsDelta = function(delta) {
+    var i;
+    if (delta.full) {
+        // whatever its version, a full payload answers any pending resync
+        this._beaconsResyncPending = false;
+    }
+    if (delta.version !== this._beaconsVersion) {
+        if (!delta.full && delta.baseVersion !== this._beaconsVersion) {
+            if (!this._beaconsResyncPending) {
+                this.resyncBeaconsData();
+            }
+            return null;
+        }
+        if (delta.full || !this._beacons) {
+            this._beacons = {};
+        }
+        for (i = 0; i < delta.added.length; i++) {
+            this._beacons[delta.added[i].id] = delta.added[i];
+        }
+        for (i = 0; i < delta.changed.length; i++) {
+            this._beacons[delta.changed[i].id] = delta.changed[i];
+        }
+        for (i = 0; i < delta.removed.length; i++) {
+            delete this._beacons[delta.removed[i]];
+        }
+        this._beaconsVersion = delta.version;
+        this._beaconList = [];
+        for (var id in this._beacons) {
+            this._beaconList.push(this._beacons[id]);
+        }
+    }
+    return {
+        detail: {
+            didLoadedBeaconsData: this._beaconList.slice(),
+            delta: delta
+        }
+    };
+};
+//
+// Minimal MessagePack decoder (nil, booleans, integers, floats, strings, binaries, arrays and maps).
+//
+MOCA.prototype.decodeMsgPack = function(buffer) {
+    var view = new DataView(buffer);
+    var bytes = new Uint8Array(buffer);
+    var offset = 0;
+    var readString = function(length) {
+        var end = offset + length;
+        var out = "";
+        while (offset < end) {
+            var c = bytes[offset++];
+            if (c < 0x80) {
+                out += String.fromCharCode(c);
+            } else if (c < 0xe0) {
+                out += String.fromCharCode(((c & 0x1f) << 6) | (bytes[offset++] & 0x3f));
+            } else if (c < 0xf0) {
+                out += String.fromCharCode(((c & 0x0f) << 12) | ((bytes[offset++] & 0x3f) << 6) | (bytes[offset++] & 0x3f));
+            } else {
+                var cp = ((c & 0x07) << 18) | ((bytes[offset++] & 0x3f) << 12) | ((bytes[offset++] & 0x3f) << 6) | (bytes[offset++] & 0x3f);
+                cp -= 0x10000;
+                out += String.fromCharCode(0xd800 + (cp >> 10), 0xdc00 + (cp & 0x3ff));
+            }
+        }
+        return out;
+    };
+    var readArray = function(length) {
+        var arr = new Array(length);
+        for (var i = 0; i < length; i++) {
+            arr[i] = read();
+        }
+        return arr;
+    };
+    var readMap = function(length) {
+        var map = {};
+        for (var i = 0; i < length; i++) {
+            var key = read();
+            map[key] = read();
+        }
+        return map;
+    };
+    var read = function() {
+        var type = bytes[offset++];
+        var value;
+        if (type < 0x80) return type;
+        if (type < 0x90) return readMap(type & 0x0f);
+        if (type < 0xa0) return readArray(type & 0x0f);
+        if (type < 0xc0) return readString(type & 0x1f);
+        if (type >= 0xe0) return type - 0x100;
+        switch (type) {
+            case 0xc0: return null;
+            case 0xc2: return false;
+            case 0xc3: return true;
+            case 0xc4: value = bytes[offset]; offset += 1; value = buffer.slice(offset, offset + value); offset += value.byteLength; return value;
+            case 0xc5: value = view.getUint16(offset); offset += 2; value = buffer.slice(offset, offset + value); offset += value.byteLength; return value;
+            case 0xc6: value = view.getUint32(offset); offset += 4; value = buffer.slice(offset, offset + value); offset += value.byteLength; return value;
+            case 0xca: value = view.getFloat32(offset); offset += 4; return value;
+            case 0xcb: value = view.getFloat64(offset); offset += 8; return value;
+            case 0xcc: value = view.getUint8(offset); offset += 1; return value;
+            case 0xcd: value = view.getUint16(offset); offset += 2; return value;
+            case 0xce: value = view.getUint32(offset); offset += 4; return value;
+            case 0xcf: value = view.getUint32(offset) * 4294967296 + view.getUint32(offset + 4); offset += 8; return value;
+            case 0xd0: value = view.getInt8(offset); offset += 1; return value;
+            case 0xd1: value = view.getInt16(offset); offset += 2; return value;
+            case 0xd2: value = view.getInt32(offset); offset += 4; return value;
+            case 0xd3: value = view.getInt32(offset) * 4294967296 + view.getUint32(offset + 4); offset += 8; return value;
+            case 0xd9: value = view.getUint8(offset); offset += 1; return readString(value);
+            case 0xda: value = view.getUint16(offset); offset += 2; return readString(value);
+            case 0xdb: value = view.getUint32(offset); offset += 4; return readString(value);
+            case 0xdc: value = view.getUint16(offset); offset += 2; return readArray(value);
+            case 0xdd: value = view.getUint32(offset); offset += 4; return readArray(value);
+            case 0xde: value = view.getUint16(offset); offset += 2; return readMap(value);
+            case 0xdf: value = view.getUint32(offset); offset += 4; return readMap(value);
+        }
+        throw new Error("MOCA: unsupported MessagePack type 0x" + type.toString(16));
+    };
+    return read();
+};
 MOCA.prototype.isPlatformIOS = function() {
     return device.platform == "iPhone" || device.platform == "iPad" || device.platform == "iPod touch" || device.platform == "iOS";
 };
@@ -134,6 +457,40 @@ MOCA.prototype.performFetch = function(callback) {
 MOCA.prototype.placesInside = function(callback) {
     this.call_native(callback, "placesInside");
 };
+//
+// Returns the places whose geofence overlaps a circle (Android), nearest first.
+//
+// MOCA.placesNear(41.39, 2.17, 500, 10, function (places) {
+//     // places[i].id, places[i].name, places[i].geofence
+//     // places[i].distance // meters from the geofence center
+// });
+//
+MOCA.prototype.placesNear = function(lat, lon, radius, limit, callback) {
+    this.call_native(callback, "placesNear", lat, lon, radius, limit || 0);
+};
+//
+// Beacons in range (each with its current proximity) and zones the device is inside (Android).
+//
+MOCA.prototype.beaconsInRange = function(callback) {
+    this.call_native(callback, "beaconsInRange");
+};
+MOCA.prototype.zonesInside = function(callback) {
+    this.call_native(callback, "zonesInside");
+};
+//
+// Returns the whole proximity state (Android). Pass the version of the last snapshot to
+// get {version, notModified: true} when nothing changed since then.
+//
+// MOCA.proximitySnapshot(lastVersion, function (s) {
+//     if (!s.notModified) {
+//         lastVersion = s.version;
+//         // s.beacons, s.zones, s.places
+//     }
+// });
+//
+MOCA.prototype.proximitySnapshot = function(sinceVersion, callback) {
+    this.call_native(callback, "proximitySnapshot", sinceVersion || 0);
+};
 // Custom properties
 MOCA.prototype.setCustomProperty = function(key, value, callback) {
     console.warn("MOCA.setCustomProperty has been deprecated since API 2.5.0, use MOCA.currentInstance().setCustomProperty(key, value, callback) instead");
@@ -156,8 +513,8 @@ MOCA.prototype.customProperty = function(key, callback) {
 //     // e.proximity // numeric proximity code (unknown=0, immediate=1, near=2, far=3)
 // });
 //
-MOCA.prototype.addEnterBeaconListener = function(callback) {
-    this.call_native(callback, "enterBeacon");
+MOCA.prototype.addEnterBeaconListener = function(callback, filter) {
+    return this.add_listener_filtered(callback, "enterBeacon", filter);
 };
 //
 // Handle exit beacon range event
@@ -167,8 +524,8 @@ MOCA.prototype.addEnterBeaconListener = function(callback) {
 //     // e.name // beacon name
 // });
 //
-MOCA.prototype.addExitBeaconListener = function(callback) {
-    this.call_native(callback, "exitBeacon");
+MOCA.prototype.addExitBeaconListener = function(callback, filter) {
+    return this.add_listener_filtered(callback, "exitBeacon", filter);
 };
 //
 // Method triggered when the state of a beacon proximity did changed.
@@ -177,10 +534,11 @@ MOCA.prototype.addExitBeaconListener = function(callback) {
 //     // e.identifier // beacon id
 //     // e.prevProximity // previous beacon proximity state (unkown=0, immediate=1, near=2, far=3)
 //     // e.curProximity // current beacon proximity state (unkown=0, immediate=1, near=2, far=3)
+//     // e.coalesced // number of changes merged into this one, optional (Android, moca_proximity_coalesce_ms)
 // });
 //
-MOCA.prototype.addBeaconProximityChangeListener = function(callback) {
-    this.call_native(callback, "beaconProximityChange");
+MOCA.prototype.addBeaconProximityChangeListener = function(callback, filter) {
+    return this.add_listener_filtered(callback, "beaconProximityChange", filter);
 };
 //
 // Method triggered when the device did entered a place.
@@ -190,8 +548,8 @@ MOCA.prototype.addBeaconProximityChangeListener = function(callback) {
 //     // e.name // place name
 // });
 //
-MOCA.prototype.addEnterPlaceListener = function(callback) {
-    this.call_native(callback, "enterPlace");
+MOCA.prototype.addEnterPlaceListener = function(callback, filter) {
+    return this.add_listener_filtered(callback, "enterPlace", filter);
 };
 //
 // Method triggered when the device did exited a place.
@@ -201,8 +559,8 @@ MOCA.prototype.addEnterPlaceListener = function(callback) {
 //     // e.name // place name
 // });
 //
-MOCA.prototype.addExitPlaceListener = function(callback) {
-    this.call_native(callback, "exitPlace");
+MOCA.prototype.addExitPlaceListener = function(callback, filter) {
+    return this.add_listener_filtered(callback, "exitPlace", filter);
 };
 //
 // Method triggered when the device did entered a zone.
@@ -215,8 +573,8 @@ MOCA.prototype.addExitPlaceListener = function(callback) {
 //     // e.shortId // zone shortId, optional
 // });
 //
-MOCA.prototype.addEnterZoneListener = function(callback) {
-    this.call_native(callback, "enterZone");
+MOCA.prototype.addEnterZoneListener = function(callback, filter) {
+    return this.add_listener_filtered(callback, "enterZone", filter);
 };
 //
 // Method triggered when the device did exited a place.
@@ -229,19 +587,37 @@ MOCA.prototype.addEnterZoneListener = function(callback) {
 //     // e.shortId // zone shortId, optional
 // });
 //
-MOCA.prototype.addExitZoneListener = function(callback) {
-    this.call_native(callback, "exitZone");
+MOCA.prototype.addExitZoneListener = function(callback, filter) {
+    return this.add_listener_filtered(callback, "exitZone", filter);
 };
 //
 // Method invoked when a proximity service loaded or updated a registry of beacons
 // from MOCA cloud or from local cache.
 //
 // MOCA.addDataReadyListener (function (e) {
-//     // e.beacons // array of beacon objects. each beacon has identifier, name and code.
+//     // e.detail.didLoadedBeaconsData // array of beacon objects. each beacon has identifier, name and code.
+//     // e.detail.delta // Android only: version, added, changed and removed beacons since the previous call
 // });
 //
+// MOCA.resyncBeaconsData() asks the native side (Android) to deliver the full registry again.
+//
 MOCA.prototype.addDataReadyListener = function(callback) {
-    this.call_native(callback, "didLoadedBeaconsData");
+    return this.add_listener(callback, "didLoadedBeaconsData");
+};
+MOCA.prototype.resyncBeaconsData = function(callback) {
+    var self = this;
+    this._beaconsResyncPending = true;
+    // the native side may answer without sending the registry (e.g. none loaded yet), so the
+    // next version gap must be able to ask again
+    cordova.exec(function(result) {
+        self._beaconsResyncPending = false;
+        if (callback) {
+            callback(result);
+        }
+    }, function(error) {
+        self._beaconsResyncPending = false;
+        self.failure(error);
+    }, 'MOCAPlugin', "resyncBeaconsData", []);
 };
 // ----------------------------------------
 // MOCA Action Callbacks
@@ -260,7 +636,7 @@ MOCA.prototype.addDataReadyListener = function(callback) {
 // });
 //
 MOCA.prototype.addCustomActionListener = function(callback) {
-    this.call_native(callback, "customAction");
+    return this.add_listener(callback, "customAction");
 };
 //
 // Method invoked when a message action is invoked.
@@ -273,7 +649,7 @@ MOCA.prototype.addCustomActionListener = function(callback) {
 // });
 //
 MOCA.prototype.addDisplayAlertListener = function(args, callback) {
-    this.call_native(callback, "displayAlert", args);
+    return this.add_listener(callback, "displayAlert", args);
 };
 //
 // Method invoked when an "open url" action is invoked.
@@ -286,7 +662,7 @@ MOCA.prototype.addDisplayAlertListener = function(args, callback) {
 // });
 //
 MOCA.prototype.addOpenUrlListener = function(args, callback) {
-    this.call_native(callback, "openUrl", args);
+    return this.add_listener(callback, "openUrl", args);
 };
 //
 // Method invoked when an embedded html action is invoked.
@@ -300,7 +676,7 @@ MOCA.prototype.addOpenUrlListener = function(args, callback) {
 // });
 //
 MOCA.prototype.addShowEmbeddedHtmlListener = function(args, callback) {
-    this.call_native(callback, "showEmbeddedHtml", args);
+    return this.add_listener(callback, "showEmbeddedHtml", args);
 };
 //
 // Method invoked when a video action is invoked.
@@ -314,7 +690,7 @@ MOCA.prototype.addShowEmbeddedHtmlListener = function(args, callback) {
 // });
 //
 MOCA.prototype.addPlayVideoListener = function(args, callback) {
-    this.call_native(callback, "playVideo", args);
+    return this.add_listener(callback, "playVideo", args);
 };
 //
 // Method invoked when a image action is invoked.
@@ -328,7 +704,7 @@ MOCA.prototype.addPlayVideoListener = function(args, callback) {
 // });
 //
 MOCA.prototype.addShowImageListener = function(args, callback) {
-    this.call_native(callback, "showImage", args);
+    return this.add_listener(callback, "showImage", args);
 };
 //
 // Method invoked when a passbook action is invoked.
@@ -342,7 +718,7 @@ MOCA.prototype.addShowImageListener = function(args, callback) {
 // });
 //
 MOCA.prototype.addAddPassbookListener = function(args, callback) {
-    this.call_native(callback, "addPassbook", args);
+    return this.add_listener(callback, "addPassbook", args);
 };
 //
 // Method invoked when a tag action is invoked.
@@ -352,7 +728,7 @@ MOCA.prototype.addAddPassbookListener = function(args, callback) {
 // });
 //
 MOCA.prototype.addAddTagListener = function(callback) {
-    this.call_native(callback, "addTag");
+    return this.add_listener(callback, "addTag");
 };
 //
 // Method invoked when a sound action is invoked.
@@ -366,7 +742,7 @@ MOCA.prototype.addAddTagListener = function(callback) {
 //});
 //
 MOCA.prototype.addPlaySoundListener = function(args, callback) {
-    this.call_native(callback, "playSound", args);
+    return this.add_listener(callback, "playSound", args);
 };
 var MOCAPlugin = new MOCA();
 var MOCAUser = function() {};
@@ -376,6 +752,13 @@ MOCAUser.prototype.setCustomProperty = function(key, value, callback) {
 MOCAUser.prototype.setCustomProperty = function(key, value, callback) {
     return MOCAPlugin.call_native(callback, "user_set_custom_property", key, value);
 };
+//
+// Sets several user properties in a single call, e.g. {name: "Ann", plan: "gold"}.
+// With save = true the user is saved once after setting them (Android).
+//
+MOCAUser.prototype.setCustomProperties = function(properties, save, callback) {
+    return MOCAPlugin.call_native(callback, "user_setCustomProperties", properties, !!save);
+};
 MOCAUser.prototype.customProperty = function(key, callback) {
     return MOCAPlugin.call_native(callback, "user_custom_property", key);
 };
@@ -390,6 +773,12 @@ var MOCAInstance = function() {};
 MOCAInstance.prototype.setCustomProperty = function(key, value, callback) {
     return MOCAPlugin.call_native(callback, "instance_setCustomProperty", key, value);
 };
+//
+// Sets several instance properties in a single call (Android).
+//
+MOCAInstance.prototype.setCustomProperties = function(properties, callback) {
+    return MOCAPlugin.call_native(callback, "instance_setCustomProperties", properties);
+};
 MOCAInstance.prototype.customProperty = function(key, callback) {
     return MOCAPlugin.call_native(callback, "instance_customProperty", key);
 };
@@ -410,6 +799,25 @@ MOCAInstance.prototype.birthDay = function(callback) {
 MOCAInstance.prototype.addTag = function(tagName, tagValue, callback) {
     return MOCAPlugin.call_native(callback, "instance_add_tag", tagName, tagValue);
 };
+//
+// Adds or updates several tags in a single call (Android). tags maps each tag name to an
+// operation: "+n", "-n" or "=n" (null counts as "+1"). The callback receives the new value of
+// each tag. If any operation is invalid nothing is applied and the error callback receives
+// {errors: {tagName: message}}.
+//
+// instance.addTags({buyer: "+1", visits: "=3"}, function (values) {
+//     // values.buyer, values.visits
+// });
+//
+MOCAInstance.prototype.addTags = function(tags, callback, failure) {
+    return cordova.exec(callback, failure || MOCAPlugin.failure, 'MOCAPlugin', "instance_add_tags", [tags]);
+};
+//
+// Same as addTags, but a null operation removes the tag.
+//
+MOCAInstance.prototype.updateTags = function(tags, callback, failure) {
+    return cordova.exec(callback, failure || MOCAPlugin.failure, 'MOCAPlugin', "instance_update_tags", [tags]);
+};
 MOCAInstance.prototype.removeTag = function(tagName, callback) {
     return MOCAPlugin.call_native(callback, "instance_remove_tag", tagName);
 };
@@ -419,6 +827,9 @@ MOCAInstance.prototype.containsTag = function(tagName, callback) {
 MOCAInstance.prototype.getTagValue = function(tagName, callback) {
     return MOCAPlugin.call_native(callback, "instance_get_value_for_tag", tagName);
 };
+MOCAInstance.prototype.getAllTags = function(callback) {
+    return MOCAPlugin.call_native(callback, "instance_get_all_tags");
+};
 MOCAInstance.prototype.currentUser = function(callback) {
     var isUserLoggedIn = MOCAPlugin.call_native(function(isUserLoggedIn) {
         if (isUserLoggedIn) {
@@ -454,6 +865,12 @@ MOCAPlugin.call_native(function(props) {
         console.error("No instance props. Is MOCA SDK Running?");
     }
 }, "current_instance");
+//receive event frames, when enabled on the native side (Android, moca_event_frames)
+if (isAndroid()) {
+    cordova.exec(function(frame) {
+        MOCAPlugin.dispatchFrame(frame);
+    }, function() {}, 'MOCAPlugin', "eventChannel", []);
+}
 // MOCA Instance
 MOCA.prototype.currentInstance = function() {
     return instance;